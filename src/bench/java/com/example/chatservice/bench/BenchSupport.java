@@ -0,0 +1,98 @@
+package com.example.chatservice.bench;
+
+import com.example.chatservice.ChatServiceApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shared plumbing for the benchmark harnesses: booting the application against an in-memory
+ * database with a stubbed model, registering a user, and summarising latencies.
+ */
+final class BenchSupport {
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private BenchSupport() {
+    }
+
+    /**
+     * Starts the application on a random port. Ollama is never contacted: model pulls are
+     * disabled and the given configuration classes replace the chat model.
+     */
+    static ConfigurableApplicationContext startApplication(Map<String, Object> overrides, Class<?>... configurations)
+            throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.show-sql", false);
+        properties.put("spring.ai.ollama.init.pull-model-strategy", "never");
+        properties.put("file.upload-dir", Files.createTempDirectory("bench-uploads").toString());
+        properties.put("chat.messages.migration.enabled", false);
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.example.chatservice", "WARN");
+        properties.put("logging.level.org.springframework.ai", "WARN");
+        properties.putAll(overrides);
+
+        Class<?>[] sources = Arrays.copyOf(configurations, configurations.length + 1);
+        sources[configurations.length] = ChatServiceApplication.class;
+
+        SpringApplication application = new SpringApplication(sources);
+        application.setDefaultProperties(properties);
+        return application.run();
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    /**
+     * Registers a fresh user and returns its bearer token.
+     */
+    static String registerUser(HttpClient client, String baseUrl) throws IOException, InterruptedException {
+        String username = "bench-" + UUID.randomUUID();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"bench-password\"}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Registration failed: " + response.statusCode() + " " + response.body());
+        }
+        return matcher.group(1);
+    }
+
+    /**
+     * Formats p50/p90/p99/max of the given latencies (nanoseconds) in milliseconds.
+     */
+    static String percentiles(long[] latencies) {
+        if (latencies.length == 0) {
+            return "no samples";
+        }
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return String.format("p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1_000_000.0);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.chatservice.bench;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Download throughput of {@code GET /api/files/{fileName}} for a large file, with Tomcat sendfile
+ * enabled and disabled ({@code chat.download.sendfile.enabled}). For each mode it reports
+ * aggregate MB/s and latency percentiles of concurrent full downloads, then the latency of small
+ * random {@code Range} reads as a media player would issue when seeking, plus how many
+ * revalidations came back {@code 304}.
+ * <p>
+ * Run with {@code mvn -Pbench test-compile exec:java
+ * -Dbench.main=com.example.chatservice.bench.DownloadBenchmark}. Tunables (system properties):
+ * {@code bench.fileSizeMb} (default 256), {@code bench.concurrency} (16),
+ * {@code bench.durationSeconds} (20).
+ */
+public class DownloadBenchmark {
+
+    private static final int FILE_SIZE_MB = Integer.getInteger("bench.fileSizeMb", 256);
+    private static final int CONCURRENCY = Integer.getInteger("bench.concurrency", 16);
+    private static final int DURATION_SECONDS = Integer.getInteger("bench.durationSeconds", 20);
+
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int RANGE_SIZE = 64 * 1024;
+    private static final Pattern UPLOAD_ID = Pattern.compile("\"uploadId\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern FILE_NAME = Pattern.compile("\"fileName\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("fileSize=%dMB concurrency=%d duration=%ds%n", FILE_SIZE_MB, CONCURRENCY, DURATION_SECONDS);
+        run(true);
+        run(false);
+        System.exit(0);
+    }
+
+    private static void run(boolean sendfile) throws Exception {
+        try (ConfigurableApplicationContext context = BenchSupport.startApplication(
+                Map.of("chat.download.sendfile.enabled", sendfile));
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            String baseUrl = "http://localhost:" + BenchSupport.port(context);
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(clients)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            String token = BenchSupport.registerUser(http, baseUrl);
+            long size = (long) FILE_SIZE_MB * 1024 * 1024;
+            String fileName = upload(http, baseUrl, token, size);
+            URI fileUri = URI.create(baseUrl + "/api/files/" + fileName);
+
+            // Full downloads
+            ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+            AtomicLong bytes = new AtomicLong();
+            AtomicLong errors = new AtomicLong();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+            HttpRequest full = HttpRequest.newBuilder(fileUri).header("Authorization", "Bearer " + token).build();
+            ExecutorService downloaders = Executors.newVirtualThreadPerTaskExecutor();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                downloaders.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            // Drain rather than buffer, so concurrent downloads don't need the file in heap
+                            HttpResponse<InputStream> response = http.send(full, HttpResponse.BodyHandlers.ofInputStream());
+                            long received;
+                            try (InputStream body = response.body()) {
+                                received = body.transferTo(OutputStream.nullOutputStream());
+                            }
+                            if (response.statusCode() == 200 && received == size) {
+                                latencies.add(System.nanoTime() - start);
+                                bytes.addAndGet(size);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            downloaders.shutdown();
+            downloaders.awaitTermination(DURATION_SECONDS + 300L, TimeUnit.SECONDS);
+            long[] fullSamples = latencies.stream().mapToLong(Long::longValue).toArray();
+
+            // Seeks: small ranges at random offsets, then conditional revalidation
+            long[] rangeSamples = new long[1000];
+            int partial = 0;
+            for (int i = 0; i < rangeSamples.length; i++) {
+                long offset = ThreadLocalRandom.current().nextLong(size - RANGE_SIZE);
+                HttpRequest range = HttpRequest.newBuilder(fileUri)
+                        .header("Authorization", "Bearer " + token)
+                        .header("Range", "bytes=" + offset + "-" + (offset + RANGE_SIZE - 1))
+                        .build();
+                long start = System.nanoTime();
+                HttpResponse<byte[]> response = http.send(range, HttpResponse.BodyHandlers.ofByteArray());
+                rangeSamples[i] = System.nanoTime() - start;
+                if (response.statusCode() == 206 && response.body().length == RANGE_SIZE) {
+                    partial++;
+                }
+            }
+            String etag = http.send(HttpRequest.newBuilder(fileUri)
+                            .header("Authorization", "Bearer " + token)
+                            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                            .build(), HttpResponse.BodyHandlers.discarding())
+                    .headers().firstValue("ETag").orElse("");
+            int notModified = 0;
+            for (int i = 0; i < 100; i++) {
+                HttpResponse<Void> response = http.send(HttpRequest.newBuilder(fileUri)
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag)
+                        .build(), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 304) {
+                    notModified++;
+                }
+            }
+
+            System.out.printf("%n[sendfile %s]%n", sendfile ? "enabled" : "disabled");
+            System.out.printf("  full:   %d downloads, %.1f MB/s, %s%n", fullSamples.length,
+                    bytes.get() / (1024.0 * 1024.0) / DURATION_SECONDS, BenchSupport.percentiles(fullSamples));
+            System.out.printf("  range:  %d/%d returned 206, %s%n", partial, rangeSamples.length,
+                    BenchSupport.percentiles(rangeSamples));
+            System.out.printf("  revalidate: %d/100 returned 304%n", notModified);
+            System.out.printf("  errors: %d%n", errors.get());
+        }
+    }
+
+    /**
+     * Uploads {@code size} bytes of random data through the chunked upload API and returns the
+     * stored file name.
+     */
+    private static String upload(HttpClient http, String baseUrl, String token, long size) throws Exception {
+        HttpResponse<String> started = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/uploads"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"fileName\":\"bench.mp4\",\"contentType\":\"video/mp4\",\"size\":" + size + "}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        String uploadId = extract(UPLOAD_ID, started);
+
+        Random random = new Random(42);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        for (long offset = 0; offset < size; offset += CHUNK_SIZE) {
+            int length = (int) Math.min(CHUNK_SIZE, size - offset);
+            random.nextBytes(chunk);
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(
+                            URI.create(baseUrl + "/api/files/uploads/" + uploadId + "?offset=" + offset))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "application/octet-stream")
+                    .PUT(HttpRequest.BodyPublishers.ofByteArray(chunk, 0, length))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Chunk upload failed: " + response.statusCode() + " " + response.body());
+            }
+        }
+
+        HttpResponse<String> completed = http.send(HttpRequest.newBuilder(
+                        URI.create(baseUrl + "/api/files/uploads/" + uploadId + "/complete"))
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.ofString());
+        return extract(FILE_NAME, completed);
+    }
+
+    private static String extract(Pattern pattern, HttpResponse<String> response) {
+        Matcher matcher = pattern.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Upload failed: " + response.statusCode() + " " + response.body());
+        }
+        return matcher.group(1);
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.chatservice.bench;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load test of the full stack against {@link StubOllamaServer}, so throughput and tail
+ * latency can be measured before a release without real models. Each virtual user registers,
+ * logs in, and then repeats a session until the time is up: open a conversation, chat for
+ * {@code bench.turns} turns alternating blocking and streaming replies, list conversations, read
+ * the history back, and every {@code bench.uploadEvery} sessions upload a file, list files and
+ * download it again.
+ * <p>
+ * Latencies go into one HDR histogram per endpoint. The report prints count, errors, throughput
+ * and p50/p90/p99/p99.9/max per endpoint, and each histogram's full percentile distribution is
+ * written to {@code bench.reportDir} as an {@code .hgrm} file for plotting or comparing releases.
+ * <p>
+ * By default the application and the stub both run in-process, with
+ * {@code spring.ai.ollama.base-url} pointed at the stub. Set {@code bench.baseUrl} to load a
+ * deployed instance instead (point its Ollama base URL at a standalone {@link StubOllamaServer}).
+ * <p>
+ * Run with {@code mvn -Pbench test-compile exec:java
+ * -Dbench.main=com.example.chatservice.bench.LoadTest}. Tunables (system properties):
+ * {@code bench.users} (default 50), {@code bench.durationSeconds} (60), {@code bench.turns} (3),
+ * {@code bench.uploadEvery} (5), {@code bench.uploadKb} (256), {@code bench.reportDir}
+ * (target/loadtest), {@code bench.baseUrl} (none), and the {@code stub.*} properties of
+ * {@link StubOllamaServer}.
+ */
+public class LoadTest {
+
+    private static final int USERS = Integer.getInteger("bench.users", 50);
+    private static final int DURATION_SECONDS = Integer.getInteger("bench.durationSeconds", 60);
+    private static final int TURNS = Integer.getInteger("bench.turns", 3);
+    private static final int UPLOAD_EVERY = Integer.getInteger("bench.uploadEvery", 5);
+    private static final int UPLOAD_KB = Integer.getInteger("bench.uploadKb", 256);
+    private static final String REPORT_DIR = System.getProperty("bench.reportDir", "target/loadtest");
+    private static final String BASE_URL = System.getProperty("bench.baseUrl");
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern FILE_NAME = Pattern.compile("\"fileName\"\\s*:\\s*\"([^\"]+)\"");
+    private static final String PASSWORD = "load-test-password";
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final byte[] uploadContent;
+
+    private LoadTest(String baseUrl, HttpClient http) {
+        this.baseUrl = baseUrl;
+        this.http = http;
+        StringBuilder text = new StringBuilder();
+        while (text.length() < UPLOAD_KB * 1024) {
+            text.append("Line ").append(text.length()).append(": quarterly numbers and notes for the load test.\n");
+        }
+        this.uploadContent = text.substring(0, UPLOAD_KB * 1024).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("users=%d duration=%ds turns=%d uploadEvery=%d uploadKb=%d%n",
+                USERS, DURATION_SECONDS, TURNS, UPLOAD_EVERY, UPLOAD_KB);
+
+        if (BASE_URL != null) {
+            run(BASE_URL);
+        } else {
+            try (StubOllamaServer stub = StubOllamaServer.fromSystemProperties(0);
+                 ConfigurableApplicationContext context = BenchSupport.startApplication(Map.of(
+                         "spring.ai.ollama.base-url", stub.baseUrl(),
+                         "spring.threads.virtual.enabled", true))) {
+                run("http://localhost:" + BenchSupport.port(context));
+                System.out.printf("stub: %s%n", stub.stats());
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void run(String baseUrl) throws Exception {
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(clients)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            LoadTest test = new LoadTest(baseUrl, http);
+
+            long started = System.nanoTime();
+            long deadline = started + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+            ExecutorService users = Executors.newVirtualThreadPerTaskExecutor();
+            for (int i = 0; i < USERS; i++) {
+                users.submit(() -> test.user(deadline));
+            }
+            users.shutdown();
+            users.awaitTermination(DURATION_SECONDS + 300L, TimeUnit.SECONDS);
+            test.report((System.nanoTime() - started) / 1e9);
+        }
+    }
+
+    /**
+     * One virtual user's whole run. Failures are counted and the user moves on to its next
+     * session, so one bad response doesn't end the run.
+     */
+    private Void user(long deadline) {
+        String username = "load-" + UUID.randomUUID();
+        String credentials = "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}";
+        if (send("POST /api/auth/register", json("/api/auth/register", null, credentials)) == null) {
+            return null;
+        }
+        String token = extract(TOKEN, send("POST /api/auth/login", json("/api/auth/login", null, credentials)));
+        if (token == null) {
+            return null;
+        }
+
+        for (int session = 0; System.nanoTime() < deadline; session++) {
+            String conversationId = extract(ID, send("POST /api/chat/conversations",
+                    json("/api/chat/conversations", token, "{\"title\":\"Load test\"}")));
+            if (conversationId == null) {
+                continue;
+            }
+
+            for (int turn = 0; turn < TURNS && System.nanoTime() < deadline; turn++) {
+                String message = "{\"message\":\"Question " + turn + " of session " + session
+                        + "\",\"conversationId\":" + conversationId + "}";
+                if (turn % 2 == 0) {
+                    send("POST /api/chat/message", json("/api/chat/message", token, message));
+                } else {
+                    String events = send("POST /api/chat/message/stream",
+                            json("/api/chat/message/stream", token, message));
+                    if (events != null && !events.contains("event:done")) {
+                        errors.computeIfAbsent("POST /api/chat/message/stream", e -> new LongAdder()).increment();
+                    }
+                }
+            }
+
+            send("GET /api/chat/conversations", get("/api/chat/conversations", token));
+            send("GET /api/chat/conversations/{id}/messages",
+                    get("/api/chat/conversations/" + conversationId + "/messages", token));
+
+            if (UPLOAD_EVERY > 0 && session % UPLOAD_EVERY == 0) {
+                String fileName = extract(FILE_NAME, send("POST /api/files/upload", upload(token)));
+                send("GET /api/files", get("/api/files", token));
+                if (fileName != null) {
+                    download(token, fileName);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends the request and records its latency under {@code endpoint}. Returns the body, or null
+     * (counted as an error) on a failure or non-2xx status.
+     */
+    private String send(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            record(endpoint, System.nanoTime() - start);
+            if (response.statusCode() / 100 == 2) {
+                return response.body();
+            }
+        } catch (IOException e) {
+            record(endpoint, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        errors.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+        return null;
+    }
+
+    private void download(String token, String fileName) {
+        String endpoint = "GET /api/files/{fileName}";
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = http.send(get("/api/files/" + fileName, token),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            long received;
+            try (InputStream body = response.body()) {
+                received = body.transferTo(OutputStream.nullOutputStream());
+            }
+            record(endpoint, System.nanoTime() - start);
+            if (response.statusCode() == 200 && received == uploadContent.length) {
+                return;
+            }
+        } catch (IOException e) {
+            record(endpoint, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        errors.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+    }
+
+    private void record(String endpoint, long nanos) {
+        latencies.computeIfAbsent(endpoint, e -> new ConcurrentHistogram(3)).recordValue(nanos);
+    }
+
+    private HttpRequest json(String path, String token, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest upload(String token) {
+        String boundary = "load-test-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(uploadContent.length + 512);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"notes.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(uploadContent);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/upload"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static String extract(Pattern pattern, String body) {
+        if (body == null) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(body);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private void report(double seconds) throws IOException {
+        Path reportDir = Paths.get(REPORT_DIR);
+        Files.createDirectories(reportDir);
+
+        System.out.printf("%n%-42s %8s %7s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(latencies).entrySet()) {
+            String endpoint = entry.getKey();
+            Histogram histogram = entry.getValue();
+            long failed = errors.getOrDefault(endpoint, new LongAdder()).sum();
+            System.out.printf("%-42s %8d %7d %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    endpoint, histogram.getTotalCount(), failed, histogram.getTotalCount() / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+
+            Path file = reportDir.resolve(endpoint.replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+                // Values in milliseconds
+                histogram.outputPercentileDistribution(out, 1_000_000.0);
+            }
+        }
+        System.out.printf("%nPercentile distributions written to %s%n", reportDir.toAbsolutePath());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.chatservice.bench;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Stand-in for Ollama that blocks the calling thread for a fixed time, the way a real blocking
+ * generation does, and then returns a canned reply.
+ */
+public class SlowChatModel implements ChatModel {
+    private final Duration latency;
+
+    public SlowChatModel(Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage("This is a stubbed reply."))));
+    }
+}
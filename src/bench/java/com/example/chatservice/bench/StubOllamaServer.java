@@ -0,0 +1,261 @@
+package com.example.chatservice.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP server speaking enough of Ollama's API for {@code spring.ai.ollama.base-url} to
+ * point at it: {@code /api/chat} (blocking and NDJSON streaming), {@code /api/embed}, and the
+ * model management calls made on startup ({@code /api/tags}, {@code /api/show}, {@code /api/pull}).
+ * <p>
+ * Replies wait {@code firstTokenLatency}, then produce {@code replyTokens} tokens at
+ * {@code tokensPerSecond}; streamed replies send each token as it is "generated". A fraction
+ * {@code errorRate} of chat and embedding requests fail with a 500, as an overloaded Ollama does.
+ * Embeddings are deterministic per input, so identical text always lands on the same vector.
+ * <p>
+ * {@link #main} runs it standalone (for pointing a deployed instance at it); {@link LoadTest}
+ * starts one in-process. Tunables (system properties): {@code stub.port} (11434),
+ * {@code stub.firstTokenMs} (200), {@code stub.tokensPerSecond} (50), {@code stub.replyTokens}
+ * (60), {@code stub.errorRate} (0), {@code stub.embeddingDimension} (768).
+ */
+public class StubOllamaServer implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String[] WORDS = {
+            "the", "model", "answers", "with", "a", "stubbed", "reply", "about", "your", "question",
+            "and", "some", "context", "from", "documents", "so", "that", "latency", "is", "realistic"
+    };
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Duration firstTokenLatency;
+    private final int tokensPerSecond;
+    private final int replyTokens;
+    private final double errorRate;
+    private final int embeddingDimension;
+    private final AtomicLong chatRequests = new AtomicLong();
+    private final AtomicLong embedRequests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    public StubOllamaServer(int port, Duration firstTokenLatency, int tokensPerSecond, int replyTokens,
+                            double errorRate, int embeddingDimension) throws IOException {
+        this.firstTokenLatency = firstTokenLatency;
+        this.tokensPerSecond = tokensPerSecond;
+        this.replyTokens = replyTokens;
+        this.errorRate = errorRate;
+        this.embeddingDimension = embeddingDimension;
+
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/api/chat", exchange -> handle(exchange, this::chat));
+        server.createContext("/api/embed", exchange -> handle(exchange, this::embed));
+        server.createContext("/api/tags", exchange -> handle(exchange, this::tags));
+        server.createContext("/api/show", exchange -> handle(exchange, this::show));
+        server.createContext("/api/pull", exchange -> handle(exchange, this::pull));
+        server.createContext("/", exchange -> handle(exchange,
+                e -> sendJson(e, 404, JSON.createObjectNode().put("error", "not found"))));
+        server.start();
+    }
+
+    /**
+     * A server configured from the {@code stub.*} system properties, on {@code port} (0 picks a
+     * free one).
+     */
+    public static StubOllamaServer fromSystemProperties(int port) throws IOException {
+        return new StubOllamaServer(port,
+                Duration.ofMillis(Integer.getInteger("stub.firstTokenMs", 200)),
+                Integer.getInteger("stub.tokensPerSecond", 50),
+                Integer.getInteger("stub.replyTokens", 60),
+                Double.parseDouble(System.getProperty("stub.errorRate", "0")),
+                Integer.getInteger("stub.embeddingDimension", 768));
+    }
+
+    public static void main(String[] args) throws Exception {
+        StubOllamaServer stub = fromSystemProperties(Integer.getInteger("stub.port", 11434));
+        System.out.printf("Stub Ollama listening on %s%n", stub.baseUrl());
+        Thread.currentThread().join();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public String stats() {
+        return String.format("chat=%d embed=%d injectedErrors=%d",
+                chatRequests.get(), embedRequests.get(), injectedErrors.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Handler {
+        Void handle(HttpExchange exchange) throws Exception;
+    }
+
+    private static void handle(HttpExchange exchange, Handler handler) {
+        try (exchange) {
+            handler.handle(exchange);
+        } catch (Exception e) {
+            // The client hung up mid-stream, or the request could not be parsed
+            System.err.println("Stub Ollama: " + e);
+        }
+    }
+
+    private Void chat(HttpExchange exchange) throws Exception {
+        chatRequests.incrementAndGet();
+        JsonNode request = JSON.readTree(exchange.getRequestBody());
+        String model = request.path("model").asText("stub");
+        boolean stream = request.path("stream").asBoolean(true);
+        int promptTokens = request.path("messages").toString().length() / 4;
+
+        long start = System.nanoTime();
+        Thread.sleep(firstTokenLatency);
+        if (injectError()) {
+            return sendJson(exchange, 500, JSON.createObjectNode().put("error", "stub: model overloaded"));
+        }
+        long tokenInterval = tokensPerSecond > 0 ? 1_000_000_000L / tokensPerSecond : 0;
+
+        if (!stream) {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < replyTokens; i++) {
+                content.append(token(i));
+            }
+            Thread.sleep(Duration.ofNanos(tokenInterval * replyTokens));
+            return sendJson(exchange, 200, chatChunk(model, content.toString(), true, promptTokens, start));
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < replyTokens; i++) {
+            if (i > 0 && tokenInterval > 0) {
+                Thread.sleep(Duration.ofNanos(tokenInterval));
+            }
+            writeLine(out, chatChunk(model, token(i), false, 0, start));
+        }
+        writeLine(out, chatChunk(model, "", true, promptTokens, start));
+        return null;
+    }
+
+    private ObjectNode chatChunk(String model, String content, boolean done, int promptTokens, long start) {
+        ObjectNode chunk = JSON.createObjectNode()
+                .put("model", model)
+                .put("created_at", Instant.now().toString());
+        chunk.putObject("message")
+                .put("role", "assistant")
+                .put("content", content);
+        chunk.put("done", done);
+        if (done) {
+            long elapsed = System.nanoTime() - start;
+            chunk.put("done_reason", "stop")
+                    .put("total_duration", elapsed)
+                    .put("load_duration", 0)
+                    .put("prompt_eval_count", promptTokens)
+                    .put("prompt_eval_duration", firstTokenLatency.toNanos())
+                    .put("eval_count", replyTokens)
+                    .put("eval_duration", Math.max(0, elapsed - firstTokenLatency.toNanos()));
+        }
+        return chunk;
+    }
+
+    private Void embed(HttpExchange exchange) throws Exception {
+        embedRequests.incrementAndGet();
+        JsonNode request = JSON.readTree(exchange.getRequestBody());
+        if (injectError()) {
+            return sendJson(exchange, 500, JSON.createObjectNode().put("error", "stub: model overloaded"));
+        }
+
+        JsonNode input = request.path("input");
+        ObjectNode response = JSON.createObjectNode().put("model", request.path("model").asText("stub"));
+        ArrayNode embeddings = response.putArray("embeddings");
+        if (input.isArray()) {
+            input.forEach(text -> embedding(embeddings.addArray(), text.asText()));
+        } else {
+            embedding(embeddings.addArray(), input.asText());
+        }
+        response.put("total_duration", 0)
+                .put("load_duration", 0)
+                .put("prompt_eval_count", input.toString().length() / 4);
+        return sendJson(exchange, 200, response);
+    }
+
+    private void embedding(ArrayNode vector, String text) {
+        // Unit-length pseudo-random vector seeded by the text
+        Random random = new Random(text.hashCode());
+        double[] values = new double[embeddingDimension];
+        double norm = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+            norm += values[i] * values[i];
+        }
+        norm = Math.sqrt(norm);
+        for (double value : values) {
+            vector.add((float) (value / norm));
+        }
+    }
+
+    private Void tags(HttpExchange exchange) throws IOException {
+        ObjectNode response = JSON.createObjectNode();
+        response.putArray("models");
+        return sendJson(exchange, 200, response);
+    }
+
+    private Void show(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        ObjectNode response = JSON.createObjectNode().put("modelfile", "").put("template", "{{ .Prompt }}");
+        response.putObject("details").put("family", "stub");
+        return sendJson(exchange, 200, response);
+    }
+
+    private Void pull(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        return sendJson(exchange, 200, JSON.createObjectNode().put("status", "success"));
+    }
+
+    private boolean injectError() {
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private static String token(int index) {
+        return (index == 0 ? "" : " ") + WORDS[index % WORDS.length];
+    }
+
+    private static Void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = JSON.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        return null;
+    }
+
+    private static void writeLine(OutputStream out, JsonNode line) throws IOException {
+        out.write(JSON.writeValueAsBytes(line));
+        out.write('\n');
+        out.flush();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.chatservice.bench;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in embedding model for vector store benchmarks. Texts are keys of the form
+ * {@code d:<n>} or {@code q:<n>} and resolve to row {@code n} of the document or query table,
+ * so stores can be filled and queried with precomputed vectors.
+ */
+public class TableEmbeddingModel implements EmbeddingModel {
+    private final float[][] documents;
+    private final float[][] queries;
+
+    public TableEmbeddingModel(float[][] documents, float[][] queries) {
+        this.documents = documents;
+        this.queries = queries;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+        for (String text : request.getInstructions()) {
+            embeddings.add(new Embedding(embed(text), embeddings.size()));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        int row = Integer.parseInt(text.substring(2));
+        return text.startsWith("q:") ? queries[row] : documents[row];
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        return texts.stream().map(this::embed).toList();
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return documents[0].length;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.chatservice.bench;
+
+import com.example.chatservice.vectorstore.FileVectorStore;
+import com.example.chatservice.vectorstore.HnswVectorStore;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recall and latency of {@link HnswVectorStore} against the exact scan of {@link FileVectorStore}
+ * on synthetic clustered embeddings. For each corpus size it reports build time, the exact
+ * baseline's query latency, and recall@k and latency of HNSW at several {@code efSearch} values.
+ * A final pass measures HNSW query latency while inserts are running.
+ * <p>
+ * Run with {@code MAVEN_OPTS=-Xmx8g mvn -Pbench test-compile exec:java
+ * -Dbench.main=com.example.chatservice.bench.VectorSearchBenchmark}. Tunables (system
+ * properties): {@code bench.sizes} (default 100000,1000000), {@code bench.dimension} (384),
+ * {@code bench.queries} (500), {@code bench.k} (10), {@code bench.m} (16),
+ * {@code bench.efConstruction} (200), {@code bench.efSearch} (16,32,64,128,256).
+ */
+public class VectorSearchBenchmark {
+
+    private static final int DIMENSION = Integer.getInteger("bench.dimension", 384);
+    private static final int QUERIES = Integer.getInteger("bench.queries", 500);
+    private static final int K = Integer.getInteger("bench.k", 10);
+    private static final int M = Integer.getInteger("bench.m", 16);
+    private static final int EF_CONSTRUCTION = Integer.getInteger("bench.efConstruction", 200);
+    private static final int CLUSTERS = 1000;
+    private static final int BATCH = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = parse(System.getProperty("bench.sizes", "100000,1000000"));
+        int[] efSearches = parse(System.getProperty("bench.efSearch", "16,32,64,128,256"));
+        System.out.printf("dimension=%d queries=%d k=%d m=%d efConstruction=%d%n",
+                DIMENSION, QUERIES, K, M, EF_CONSTRUCTION);
+        for (int size : sizes) {
+            run(size, efSearches);
+        }
+        System.exit(0);
+    }
+
+    private static void run(int size, int[] efSearches) throws Exception {
+        Random random = new Random(42);
+        float[][] centers = randomVectors(random, CLUSTERS, null);
+        float[][] documents = randomVectors(random, size, centers);
+        float[][] queries = randomVectors(random, QUERIES, centers);
+        TableEmbeddingModel model = new TableEmbeddingModel(documents, queries);
+        System.out.printf("%n[%,d vectors]%n", size);
+
+        Path directory = Files.createTempDirectory("bench-vectors");
+        try (FileVectorStore exact = new FileVectorStore(model, directory)) {
+            long start = System.nanoTime();
+            fill(exact::add, 0, size, 1);
+            System.out.printf("  flat build:  %.1fs%n", (System.nanoTime() - start) / 1e9);
+
+            HnswVectorStore hnsw = new HnswVectorStore(model, null, M, EF_CONSTRUCTION, efSearches[0]);
+            start = System.nanoTime();
+            fill(hnsw::add, 0, size, Runtime.getRuntime().availableProcessors());
+            System.out.printf("  hnsw build:  %.1fs (%d threads)%n",
+                    (System.nanoTime() - start) / 1e9, Runtime.getRuntime().availableProcessors());
+
+            List<Set<String>> truth = new ArrayList<>(QUERIES);
+            long[] latencies = new long[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                long queryStart = System.nanoTime();
+                List<Document> hits = exact.similaritySearch(request(q));
+                latencies[q] = System.nanoTime() - queryStart;
+                truth.add(ids(hits));
+            }
+            System.out.printf("  flat:        recall=1.000 %s%n", BenchSupport.percentiles(latencies));
+
+            for (int ef : efSearches) {
+                int found = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    long queryStart = System.nanoTime();
+                    List<Document> hits = hnsw.similaritySearch(request(q), ef);
+                    latencies[q] = System.nanoTime() - queryStart;
+                    Set<String> hitIds = ids(hits);
+                    hitIds.retainAll(truth.get(q));
+                    found += hitIds.size();
+                }
+                System.out.printf("  hnsw ef=%-4d recall=%.3f %s%n",
+                        ef, found / (double) (QUERIES * K), BenchSupport.percentiles(latencies));
+            }
+
+            queryWhileInserting(model, size, efSearches[efSearches.length / 2]);
+        } finally {
+            try (var files = Files.walk(directory)) {
+                files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Builds an index over the first half of the corpus, then queries it while other threads
+     * insert the second half.
+     */
+    private static void queryWhileInserting(TableEmbeddingModel model, int size, int ef) throws Exception {
+        HnswVectorStore hnsw = new HnswVectorStore(model, null, M, EF_CONSTRUCTION, ef);
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        fill(hnsw::add, 0, size / 2, threads);
+
+        AtomicBoolean inserting = new AtomicBoolean(true);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Future<?> inserts = writer.submit(() -> {
+            try {
+                fill(hnsw::add, size / 2, size, threads);
+            } finally {
+                inserting.set(false);
+            }
+            return null;
+        });
+
+        List<Long> samples = new ArrayList<>();
+        int q = 0;
+        while (inserting.get()) {
+            long queryStart = System.nanoTime();
+            hnsw.similaritySearch(request(q++ % QUERIES), ef);
+            samples.add(System.nanoTime() - queryStart);
+        }
+        inserts.get();
+        writer.shutdown();
+        System.out.printf("  hnsw ef=%-4d during inserts: %d queries, %s, final size=%,d%n",
+                ef, samples.size(), BenchSupport.percentiles(samples.stream().mapToLong(Long::longValue).toArray()),
+                hnsw.size());
+    }
+
+    private interface Sink {
+        void add(List<Document> documents);
+    }
+
+    private static void fill(Sink sink, int from, int to, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger next = new AtomicInteger(from);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                int batchStart;
+                while ((batchStart = next.getAndAdd(BATCH)) < to) {
+                    List<Document> batch = new ArrayList<>(BATCH);
+                    for (int i = batchStart; i < Math.min(batchStart + BATCH, to); i++) {
+                        batch.add(new Document("doc-" + i, "d:" + i, Map.of()));
+                    }
+                    sink.add(batch);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private static SearchRequest request(int query) {
+        return SearchRequest.builder().query("q:" + query).topK(K).build();
+    }
+
+    private static Set<String> ids(List<Document> documents) {
+        Set<String> ids = new HashSet<>();
+        documents.forEach(document -> ids.add(document.getId()));
+        return ids;
+    }
+
+    /**
+     * Gaussian vectors, or points scattered around random centers to mimic the clustering of
+     * real text embeddings.
+     */
+    private static float[][] randomVectors(Random random, int count, float[][] centers) {
+        float[][] vectors = new float[count][DIMENSION];
+        for (int i = 0; i < count; i++) {
+            float[] center = centers == null ? null : centers[random.nextInt(centers.length)];
+            for (int d = 0; d < DIMENSION; d++) {
+                vectors[i][d] = (float) (center == null ? random.nextGaussian() : center[d] + 0.5 * random.nextGaussian());
+            }
+        }
+        return vectors;
+    }
+
+    private static int[] parse(String values) {
+        return Arrays.stream(values.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
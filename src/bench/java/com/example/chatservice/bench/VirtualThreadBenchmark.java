@@ -0,0 +1,132 @@
+package com.example.chatservice.bench;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares platform-thread and virtual-thread request handling ({@code spring.threads.virtual.enabled})
+ * under many concurrent blocking chat calls against a stubbed slow model. For each mode it reports
+ * chat throughput and latency percentiles, plus the latency of {@code /api/chat/health} probed
+ * while the chat load is running, which shows whether cheap endpoints queue behind generations.
+ * Admission control is opened up to the benchmark's concurrency so no request is turned away.
+ * <p>
+ * Run with {@code mvn -Pbench test-compile exec:java}. Tunables (system properties):
+ * {@code bench.concurrency} (default 400), {@code bench.durationSeconds} (30),
+ * {@code bench.modelLatencyMs} (2000).
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int CONCURRENCY = Integer.getInteger("bench.concurrency", 400);
+    private static final int DURATION_SECONDS = Integer.getInteger("bench.durationSeconds", 30);
+    private static final int MODEL_LATENCY_MS = Integer.getInteger("bench.modelLatencyMs", 2000);
+
+    // Not annotated with @Configuration so component scanning never picks it up on its own
+    static class SlowModelConfiguration {
+        @Bean
+        @Primary
+        ChatModel slowChatModel() {
+            return new SlowChatModel(Duration.ofMillis(MODEL_LATENCY_MS));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("concurrency=%d duration=%ds modelLatency=%dms%n",
+                CONCURRENCY, DURATION_SECONDS, MODEL_LATENCY_MS);
+        run(false);
+        run(true);
+        System.exit(0);
+    }
+
+    private static void run(boolean virtualThreads) throws Exception {
+        // Admit every client at once: this measures the threading model, not the admission limiter
+        try (ConfigurableApplicationContext context = BenchSupport.startApplication(Map.of(
+                        "spring.threads.virtual.enabled", virtualThreads,
+                        "chat.admission.max-concurrent", CONCURRENCY,
+                        "chat.admission.max-queue", CONCURRENCY,
+                        "chat.admission.adaptive.enabled", false),
+                SlowModelConfiguration.class);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            String baseUrl = "http://localhost:" + BenchSupport.port(context);
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(clients)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            String token = BenchSupport.registerUser(http, baseUrl);
+
+            HttpRequest chat = HttpRequest.newBuilder(URI.create(baseUrl + "/api/chat/message"))
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + token)
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"message\":\"hello\"}"))
+                    .build();
+            HttpRequest health = HttpRequest.newBuilder(URI.create(baseUrl + "/api/chat/health"))
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build();
+
+            ConcurrentLinkedQueue<Long> chatLatencies = new ConcurrentLinkedQueue<>();
+            ConcurrentLinkedQueue<Long> healthLatencies = new ConcurrentLinkedQueue<>();
+            AtomicLong errors = new AtomicLong();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+
+            for (int i = 0; i < CONCURRENCY; i++) {
+                clients.submit(() -> loop(http, chat, deadline, chatLatencies, errors));
+            }
+            clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    send(http, health, healthLatencies, errors);
+                    Thread.sleep(100);
+                }
+                return null;
+            });
+
+            clients.shutdown();
+            clients.awaitTermination(DURATION_SECONDS + 120L, TimeUnit.SECONDS);
+
+            long[] chatSamples = chatLatencies.stream().mapToLong(Long::longValue).toArray();
+            long[] healthSamples = healthLatencies.stream().mapToLong(Long::longValue).toArray();
+            System.out.printf("%n[%s threads]%n", virtualThreads ? "virtual" : "platform");
+            System.out.printf("  chat:   %d requests, %.1f req/s, %s%n", chatSamples.length,
+                    chatSamples.length / (double) DURATION_SECONDS, BenchSupport.percentiles(chatSamples));
+            System.out.printf("  health: %d probes, %s%n", healthSamples.length, BenchSupport.percentiles(healthSamples));
+            System.out.printf("  errors: %d%n", errors.get());
+        }
+    }
+
+    private static Void loop(HttpClient http, HttpRequest request, long deadline,
+                             ConcurrentLinkedQueue<Long> latencies, AtomicLong errors) {
+        while (System.nanoTime() < deadline) {
+            send(http, request, latencies, errors);
+        }
+        return null;
+    }
+
+    private static void send(HttpClient http, HttpRequest request,
+                             ConcurrentLinkedQueue<Long> latencies, AtomicLong errors) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 200) {
+                latencies.add(System.nanoTime() - start);
+            } else {
+                errors.incrementAndGet();
+            }
+        } catch (Exception e) {
+            errors.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.chatservice.bench.jmh;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Builds real service beans for the microbenchmarks without booting the application: a bare
+ * context that resolves {@code @Value} defaults (and the given overrides) and runs
+ * {@code @PostConstruct}, with repositories replaced by inert stubs.
+ */
+final class Components {
+
+    private Components() {
+    }
+
+    static AnnotationConfigApplicationContext create(Map<String, Object> properties, Object[] stubs,
+                                                     Class<?>... components) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("bench", properties));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        for (Object stub : stubs) {
+            registerStub(context, stub);
+        }
+        context.register(components);
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * A repository that stores nothing: {@code save} hands back its argument, lookups find
+     * nothing, counts and sums are zero.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T emptyRepository(Class<T> repositoryType) {
+        return (T) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (proxy, method, args) -> emptyResult(proxy, method, args));
+    }
+
+    private static Object emptyResult(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "save", "saveAndFlush":
+                return args[0];
+            case "toString":
+                return "empty " + method.getDeclaringClass().getSimpleName();
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+        Class<?> type = method.getReturnType();
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (type == long.class || type == Long.class) {
+            return 0L;
+        }
+        if (type == int.class || type == Integer.class) {
+            return 0;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return false;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void registerStub(AnnotationConfigApplicationContext context, Object stub) {
+        Class<T> type = (Class<T>) stub.getClass().getInterfaces()[0];
+        context.registerBean(type, () -> (T) stub);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.chatservice.bench.jmh;
+
+import com.example.chatservice.service.ConversationChatMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending to and reading a conversation holding {@code messages} messages. Messages are stored
+ * one row each rather than on the conversation, so the in-process part of that path is the chat
+ * memory window every prompt reads and then appends to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConversationMemoryBenchmark {
+
+    // Not numeric, so the memory never asks the (absent) message store for history
+    private static final String CONVERSATION = "bench";
+
+    @Param({"10", "100", "1000", "10000"})
+    private int messages;
+
+    private ConversationChatMemory memory;
+    private List<Message> exchange;
+
+    @Setup
+    public void setUp() {
+        memory = new ConversationChatMemory(null, messages, 10, new SimpleMeterRegistry());
+        for (int i = 0; i < messages; i += 2) {
+            memory.add(CONVERSATION, List.of(new UserMessage("Question " + i),
+                    new AssistantMessage("Answer " + i)));
+        }
+        exchange = List.of(new UserMessage("Another question"), new AssistantMessage("Another answer"));
+    }
+
+    /**
+     * One prompt's worth of memory traffic: read the full window, then append the exchange
+     * (evicting the oldest two).
+     */
+    @Benchmark
+    public List<Message> memoryReadAndAppend() {
+        List<Message> window = memory.get(CONVERSATION, messages);
+        memory.add(CONVERSATION, exchange);
+        return window;
+    }
+
+    @Benchmark
+    public List<Message> memoryRead() {
+        return memory.get(CONVERSATION, messages);
+    }
+}
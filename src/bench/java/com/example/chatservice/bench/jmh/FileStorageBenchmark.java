@@ -0,0 +1,187 @@
+package com.example.chatservice.bench.jmh;
+
+import com.example.chatservice.controller.FileController;
+import com.example.chatservice.model.FileInfo;
+import com.example.chatservice.repository.StoredBlobRepository;
+import com.example.chatservice.repository.StoredFileRepository;
+import com.example.chatservice.service.BlobStore;
+import com.example.chatservice.service.FileStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The upload path of {@link FileStorageService}: a full {@code storeFile} (validation, hashing,
+ * optional gzip, blob placement) on a temp directory with in-memory repository stubs, plus the
+ * validation, categorization and {@link FileController} content-type lookups on their own. Those
+ * helpers are private, so they are reached through method handles rather than widened for the
+ * benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FileStorageBenchmark {
+
+    private static final MethodHandle VALIDATE_FILE;
+    private static final MethodHandle CATEGORIZE_FILE_TYPE;
+    private static final MethodHandle DETERMINE_CONTENT_TYPE;
+
+    static {
+        try {
+            MethodHandles.Lookup storage = MethodHandles.privateLookupIn(FileStorageService.class, MethodHandles.lookup());
+            VALIDATE_FILE = storage.findVirtual(FileStorageService.class, "validateFile",
+                    MethodType.methodType(void.class, MultipartFile.class));
+            CATEGORIZE_FILE_TYPE = storage.findVirtual(FileStorageService.class, "categorizeFileType",
+                    MethodType.methodType(String.class, String.class, String.class));
+            DETERMINE_CONTENT_TYPE = MethodHandles.privateLookupIn(FileController.class, MethodHandles.lookup())
+                    .findStatic(FileController.class, "determineContentType",
+                            MethodType.methodType(String.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * {@code text} is stored gzipped, {@code image} is incompressible and stored as is.
+     */
+    @Param({"text", "image"})
+    private String kind;
+
+    @Param({"4096", "1048576"})
+    private int size;
+
+    private Path uploadDir;
+    private AnnotationConfigApplicationContext context;
+    private FileStorageService fileStorageService;
+    private MultipartFile upload;
+
+    @Setup
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("bench-storage");
+        context = Components.create(Map.of("file.upload-dir", uploadDir.toString()),
+                new Object[]{
+                        Components.emptyRepository(StoredBlobRepository.class),
+                        Components.emptyRepository(StoredFileRepository.class)},
+                BlobStore.class, FileStorageService.class);
+        fileStorageService = context.getBean(FileStorageService.class);
+
+        byte[] content = new byte[size];
+        if ("text".equals(kind)) {
+            byte[] line = "2024-05-01 12:00:00 INFO request served in 12 ms\n".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < size; i++) {
+                content[i] = line[i % line.length];
+            }
+            upload = new BytesMultipartFile("server.txt", "text/plain", content);
+        } else {
+            new Random(42).nextBytes(content);
+            upload = new BytesMultipartFile("photo.png", "image/png", content);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(uploadDir);
+    }
+
+    @Benchmark
+    public FileInfo storeFile() throws IOException {
+        return fileStorageService.storeFile(upload, 1L);
+    }
+
+    @Benchmark
+    public void validateFile() throws Throwable {
+        VALIDATE_FILE.invokeExact(fileStorageService, upload);
+    }
+
+    @Benchmark
+    public String categorizeFileType() throws Throwable {
+        return (String) CATEGORIZE_FILE_TYPE.invokeExact(fileStorageService, upload.getContentType(), "png");
+    }
+
+    @Benchmark
+    public String categorizeFileTypeByExtension() throws Throwable {
+        return (String) CATEGORIZE_FILE_TYPE.invokeExact(fileStorageService, (String) null, "docx");
+    }
+
+    @Benchmark
+    public String determineContentType() throws Throwable {
+        return (String) DETERMINE_CONTENT_TYPE.invokeExact("b6f1c2d4-9e8a-4f7b-a3c5-quarterly-report.PDF");
+    }
+
+    /**
+     * A multipart upload already held in memory, as Spring hands over small uploads.
+     */
+    private record BytesMultipartFile(String originalFilename, String contentType, byte[] content)
+            implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return originalFilename;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return content.length == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return content;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.write(dest.toPath(), content);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.chatservice.bench.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the JMH microbenchmarks in this package with the GC profiler, so every result comes with
+ * its allocation rate ({@code gc.alloc.rate.norm} is bytes per operation). Nothing needs network
+ * access: models, databases and servers are either stubbed or not involved.
+ * <p>
+ * Run all of them with {@code mvn -Pbench test-compile exec:java
+ * -Dbench.main=com.example.chatservice.bench.jmh.JmhRunner}. Regular JMH options can be passed in
+ * {@code -Dexec.args}, e.g. {@code -Dexec.args="JwtBenchmark -f 1 -wi 3 -i 5"} to run one class
+ * with a shorter schedule, or {@code -Dexec.args="-rf json -rff target/jmh.json"} to keep a
+ * result file to compare against in review.
+ */
+public class JmhRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(JmhRunner.class.getPackageName() + ".*Benchmark");
+        }
+
+        exposeClassPath();
+        new Runner(options.build()).run();
+        System.exit(0);
+    }
+
+    /**
+     * JMH forks benchmark JVMs with {@code java.class.path}. Under {@code exec:java} that is
+     * Maven's own class path and the project sits in a child class loader, so hand the forks the
+     * loader's URLs instead.
+     */
+    private static void exposeClassPath() throws URISyntaxException {
+        if (!(Thread.currentThread().getContextClassLoader() instanceof URLClassLoader loader)) {
+            return;
+        }
+        List<String> entries = new ArrayList<>();
+        for (URL url : loader.getURLs()) {
+            if ("file".equals(url.getProtocol())) {
+                entries.add(Paths.get(url.toURI()).toString());
+            }
+        }
+        if (!entries.isEmpty()) {
+            System.setProperty("java.class.path", String.join(File.pathSeparator, entries));
+        }
+    }
+}
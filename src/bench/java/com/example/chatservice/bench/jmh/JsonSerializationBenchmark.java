@@ -0,0 +1,90 @@
+package com.example.chatservice.bench.jmh;
+
+import com.example.chatservice.model.ChatResponse;
+import com.example.chatservice.model.Conversation;
+import com.example.chatservice.model.FileInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (configured as Spring MVC configures it) on the payloads the API returns most: a single
+ * {@link ChatResponse}, one with a file attachment, and a {@link Conversation} holding
+ * {@code messages} messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int messages;
+
+    private ObjectMapper objectMapper;
+    private ChatResponse response;
+    private ChatResponse responseWithFile;
+    private String responseJson;
+    private Conversation conversation;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        response = ChatResponse.createBotResponseWithConversation(
+                "The quick brown fox jumps over the lazy dog. ".repeat(8), 1L);
+        responseWithFile = ChatResponse.createBotResponseWithFile("Here is the report you asked for.",
+                new FileInfo("3f2b9c1e-report.pdf", "report.pdf", "application/pdf", 482_133,
+                        "/api/files/3f2b9c1e-report.pdf", "document"));
+        responseJson = objectMapper.writeValueAsString(response);
+
+        conversation = new Conversation();
+        conversation.setId(1L);
+        conversation.setTitle("Benchmark conversation");
+        conversation.setCreatedAt(LocalDateTime.now());
+        conversation.setUpdatedAt(LocalDateTime.now());
+        for (int i = 0; i < messages; i++) {
+            ChatResponse message = i % 2 == 0
+                    ? ChatResponse.createUserResponse("Question " + i + " about the uploaded document?", 1L)
+                    : ChatResponse.createBotResponseWithConversation(
+                            "Answer " + i + ": " + "the document says so. ".repeat(10), 1L);
+            message.setSequence((long) i);
+            conversation.getMessages().add(message);
+        }
+        conversation.setMessageCount(messages);
+    }
+
+    @Benchmark
+    public byte[] serializeChatResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeChatResponseWithFile() throws Exception {
+        return objectMapper.writeValueAsBytes(responseWithFile);
+    }
+
+    @Benchmark
+    public ChatResponse deserializeChatResponse() throws Exception {
+        return objectMapper.readValue(responseJson, ChatResponse.class);
+    }
+
+    @Benchmark
+    public byte[] serializeConversation() throws Exception {
+        return objectMapper.writeValueAsBytes(conversation);
+    }
+}
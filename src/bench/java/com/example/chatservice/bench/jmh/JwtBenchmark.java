@@ -0,0 +1,75 @@
+package com.example.chatservice.bench.jmh;
+
+import com.example.chatservice.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JwtUtil} on every authenticated request: issuing a token, validating one that is already
+ * in the verified-token cache (the common case), validating one that is not (signature check), and
+ * reading the username from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JwtBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = Components.create(Map.of(
+                "jwt.secret", "benchSecretKey0123456789abcdefghijklmnopqrstuvwxyz",
+                "jwt.expiration", 86_400_000L), new Object[0], JwtUtil.class);
+        jwtUtil = context.getBean(JwtUtil.class);
+        token = jwtUtil.generateToken(42L, "bench-user", List.of(JwtUtil.DEFAULT_ROLE));
+        jwtUtil.validateToken(token);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(42L, "bench-user", List.of(JwtUtil.DEFAULT_ROLE));
+    }
+
+    @Benchmark
+    public Boolean validateCachedToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Claims validateUncachedToken() {
+        jwtUtil.evict(token);
+        return jwtUtil.validateAndGetClaims(token);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtUtil.extractUsername(token);
+    }
+}
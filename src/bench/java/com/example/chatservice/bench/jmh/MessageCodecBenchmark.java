@@ -0,0 +1,83 @@
+package com.example.chatservice.bench.jmh;
+
+import com.example.chatservice.model.ChatResponse;
+import com.example.chatservice.model.FileInfo;
+import com.example.chatservice.service.MessageCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a stored message's content with {@link MessageCodec} in each format,
+ * against the baseline of serializing the whole {@link ChatResponse} as JSON the way the
+ * legacy {@code messages_json} column did. The encoded size of each combination is printed at
+ * setup, since storage size is half of what the codec is for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MessageCodecBenchmark {
+
+    @Param({"legacy-json", "json", "json+deflate", "cbor", "cbor+deflate"})
+    private String format;
+
+    @Param({"short", "reply", "attachment"})
+    private String message;
+
+    private ObjectMapper objectMapper;
+    private MessageCodec codec;
+    private ChatResponse response;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        response = switch (message) {
+            case "short" -> ChatResponse.createUserResponse("What does the report say about Q3 revenue?", 1L);
+            case "reply" -> ChatResponse.createBotResponseWithConversation(
+                    "# Summary\n\nThe report covers **three** areas:\n\n"
+                            + "* Revenue grew compared to the previous quarter.\n".repeat(12)
+                            + "\n> Figures are preliminary until the audit is complete.", 1L);
+            case "attachment" -> ChatResponse.createBotResponseWithFile("Here is the report you asked for.",
+                    new FileInfo("3f2b9c1e-report.pdf", "report.pdf", "application/pdf", 482_133,
+                            "/api/files/3f2b9c1e-report.pdf", "document"));
+            default -> throw new IllegalArgumentException(message);
+        };
+
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        if (!format.equals("legacy-json")) {
+            String[] parts = format.split("\\+");
+            codec = new MessageCodec(parts[0], parts.length > 1, 0);
+        }
+        encoded = codec == null ? objectMapper.writeValueAsBytes(response) : encode();
+        System.out.printf("%n%s/%s: %d bytes%n", format, message, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return codec == null
+                ? objectMapper.writeValueAsBytes(response)
+                : codec.encode(response.getMessage(), response.getFileInfo());
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return codec == null
+                ? objectMapper.readValue(encoded, ChatResponse.class)
+                : codec.decode(encoded);
+    }
+}
@@ -1,6 +1,6 @@
 import React, { useState, useEffect, useRef } from 'react';
 import { useOutletContext } from 'react-router-dom';
-import { sendMessage, getConversation } from '../services/apiService';
+import { streamMessage, getMessages } from '../services/apiService';
 import { FiSend } from 'react-icons/fi';
 import ReactMarkdown from 'react-markdown';
 import remarkGfm from 'remark-gfm';
@@ -12,6 +12,9 @@ const Chat = () => {
   const [input, setInput] = useState('');
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
+  const [nextBefore, setNextBefore] = useState(null);
+  const [loadingOlder, setLoadingOlder] = useState(false);
+  const skipScrollRef = useRef(false);
   const messagesEndRef = useRef(null);
   const chatContainerRef = useRef(null);
   const textareaRef = useRef(null);
@@ -27,17 +30,13 @@ const Chat = () => {
       try {
         setLoading(true);
         setError(null);
-        const conversation = await getConversation(conversationId);
-        console.log('Conversation data:', conversation);
-        if (isSubscribed && conversation) {
-          setSelectedConversation(prevState => {
-            console.log('Previous state:', prevState); // Added console log
-            console.log('New messages:', conversation.messages); // Added console log
-            return {
-              ...prevState,
-              messages: conversation.messages || []
-            };
-          });
+        const page = await getMessages(conversationId);
+        if (isSubscribed && page) {
+          setNextBefore(page.hasMore ? page.nextBefore : null);
+          setSelectedConversation(prevState => ({
+            ...prevState,
+            messages: page.messages || []
+          }));
         }
       } catch (error) {
         if (isSubscribed) {
@@ -51,6 +50,7 @@ const Chat = () => {
       }
     };
 
+    setNextBefore(null);
     if (selectedConversation?.id) {
       loadConversationMessages(selectedConversation.id);
     }
@@ -61,10 +61,44 @@ const Chat = () => {
     };
   }, [selectedConversation?.id]);
 
-  // Scroll to bottom when messages change
+  // Scroll to bottom when messages change (but not when older history was prepended)
   useEffect(() => {
+    if (skipScrollRef.current) {
+      skipScrollRef.current = false;
+      return;
+    }
     scrollToBottom();
   }, [selectedConversation?.messages]);
+
+  // Lazy-load older history when the user scrolls to the top
+  const handleScroll = async () => {
+    const container = chatContainerRef.current;
+    if (!container || container.scrollTop > 50 || nextBefore === null || loadingOlder || !selectedConversation?.id) {
+      return;
+    }
+
+    const conversationId = selectedConversation.id;
+    const previousHeight = container.scrollHeight;
+    try {
+      setLoadingOlder(true);
+      const page = await getMessages(conversationId, nextBefore);
+      setNextBefore(page.hasMore ? page.nextBefore : null);
+      skipScrollRef.current = true;
+      setSelectedConversation(prev => prev?.id !== conversationId ? prev : ({
+        ...prev,
+        messages: [...(page.messages || []), ...(prev.messages || [])]
+      }));
+      // Keep the viewport on the message the user was looking at
+      requestAnimationFrame(() => {
+        container.scrollTop = container.scrollHeight - previousHeight;
+      });
+    } catch (error) {
+      console.error('Failed to load older messages:', error);
+      setError('Failed to load older messages. Please try again.');
+    } finally {
+      setLoadingOlder(false);
+    }
+  };
   
   // Auto-resize textarea
   useEffect(() => {
@@ -112,41 +146,50 @@ const Chat = () => {
         messages: [...(prev.messages || []), userMessage]
       }));
       
+      // Add an empty bot message that is filled in as tokens stream in
+      const streamingMessage = {
+        message: '',
+        sender: 'bot',
+        timestamp: new Date().toISOString(),
+        isStreaming: true
+      };
+      setSelectedConversation(prev => ({
+        ...prev,
+        messages: [...(prev.messages || []), streamingMessage]
+      }));
+
+      const replaceStreamingMessage = (update) => {
+        setSelectedConversation(prev => {
+          const messages = [...(prev.messages || [])];
+          const last = messages.length - 1;
+          if (last >= 0 && messages[last].isStreaming) {
+            messages[last] = update(messages[last]);
+          }
+          return { ...prev, messages };
+        });
+      };
+
       // Send to backend
       console.log('Sending message to backend:', currentInput);
-      const response = await sendMessage(currentInput, selectedConversation.id);
-      console.log('Received response from backend:', {
-        response,
-        type: typeof response,
-        structure: JSON.stringify(response, null, 2)
+      const response = await streamMessage(currentInput, selectedConversation.id, null, (token) => {
+        replaceStreamingMessage(msg => ({ ...msg, message: msg.message + token }));
       });
       
-      // Add bot response - ensure it has the correct structure
-      if (response) {
-        // Ensure response has the required structure
-        const botMessage = {
-          message: response.message || response.text || 'No response received',
-          sender: 'bot',
-          timestamp: response.timestamp || new Date().toISOString()
-        };
-        
-        console.log('Formatted bot message:', botMessage);
-        
-        // Update conversation with the bot response
-        setSelectedConversation(prev => ({
-          ...prev,
-          messages: [...(prev.messages || []), botMessage]
-        }));
-      }
+      // Replace the streaming placeholder with the saved bot response
+      replaceStreamingMessage(msg => ({
+        message: response.message,
+        sender: 'bot',
+        timestamp: response.timestamp || msg.timestamp
+      }));
       
     } catch (error) {
       console.error('Failed to send message:', error);
       setError('Failed to send message. Please try again.');
       
-      // Show error to user
+      // Show error to user (dropping any partially streamed reply)
       setSelectedConversation(prev => ({
         ...prev,
-        messages: [...(prev.messages || []), {
+        messages: [...(prev.messages || []).filter(m => !m.isStreaming), {
           message: 'Sorry, there was an error sending your message. Please try again.',
           sender: 'bot',
           timestamp: new Date().toISOString(),
@@ -233,7 +276,11 @@ const Chat = () => {
         )}
       </div>
       
-      <div className="messages-container" ref={chatContainerRef}>
+      <div className="messages-container" ref={chatContainerRef} onScroll={handleScroll}>
+        {loadingOlder && (
+          <div className="loading-older">Loading older messages...</div>
+        )}
+        
         {error && (
           <div className="error-banner">
             {error}
@@ -245,7 +292,9 @@ const Chat = () => {
             <p>Start a new conversation...</p>
           </div>
         ) : (
-          selectedConversation.messages.map((message, index) => (
+          selectedConversation.messages
+            .filter(message => !(message.isStreaming && !message.message))
+            .map((message, index) => (
             <div 
               key={index} 
               className={`message ${message.sender === 'user' ? 'user-message' : 'bot-message'} ${message.isError ? 'error-message' : ''}`}
@@ -284,7 +333,7 @@ const Chat = () => {
           ))
         )}
         
-        {loading && (
+        {loading && !selectedConversation.messages?.some(m => m.isStreaming && m.message) && (
           <div className="message bot-message loading-message">
             <div className="message-content">
               <p>
@@ -331,7 +380,8 @@ Chat.propTypes = {
       message: PropTypes.string.isRequired,
       sender: PropTypes.oneOf(['user', 'bot']).isRequired,
       timestamp: PropTypes.string.isRequired,
-      isError: PropTypes.bool
+      isError: PropTypes.bool,
+      isStreaming: PropTypes.bool
     }))
   }),
   setSelectedConversation: PropTypes.func
@@ -7,6 +7,9 @@ const ConversationList = ({ onSelectConversation, selectedConversationId }) => {
   const [conversations, setConversations] = useState([]);
   const [isLoading, setIsLoading] = useState(true);
   const [error, setError] = useState(null);
+  const [page, setPage] = useState(0);
+  const [hasMore, setHasMore] = useState(false);
+  const [isLoadingMore, setIsLoadingMore] = useState(false);
   const [editingConversationId, setEditingConversationId] = useState(null);
   const [newTitle, setNewTitle] = useState('');
   const inputRef = useRef(null);
@@ -19,12 +22,14 @@ const ConversationList = ({ onSelectConversation, selectedConversationId }) => {
   const fetchConversations = async () => {
     setIsLoading(true);
     try {
-      const data = await getConversations();
-      setConversations(data);
+      const data = await getConversations(0);
+      setConversations(data.conversations);
+      setPage(0);
+      setHasMore(data.hasMore);
 
       // Select the first conversation if none is selected
-      if (data.length > 0 && (selectedConversationId === null || selectedConversationId === undefined)) {
-        onSelectConversation(data[0]);
+      if (data.conversations.length > 0 && (selectedConversationId === null || selectedConversationId === undefined)) {
+        onSelectConversation(data.conversations[0]);
       }
     } catch (error) {
       console.error('Failed to fetch conversations:', error);
@@ -34,6 +39,25 @@ const ConversationList = ({ onSelectConversation, selectedConversationId }) => {
     }
   };
 
+  const handleLoadMore = async () => {
+    setIsLoadingMore(true);
+    try {
+      const data = await getConversations(page + 1);
+      // Skip anything already shown (e.g. conversations created since the first page)
+      setConversations(prev => [
+        ...prev,
+        ...data.conversations.filter(c => !prev.some(existing => existing.id === c.id))
+      ]);
+      setPage(page + 1);
+      setHasMore(data.hasMore);
+    } catch (error) {
+      console.error('Failed to load more conversations:', error);
+      setError('Failed to load more conversations');
+    } finally {
+      setIsLoadingMore(false);
+    }
+  };
+
   const handleCreateConversation = async () => {
     try {
       const newConversation = await createConversation('New Conversation');
@@ -158,11 +182,16 @@ const ConversationList = ({ onSelectConversation, selectedConversationId }) => {
                   ref={inputRef}
                 />
               ) : (
-                <div
-                  className="conversation-title"
-                  onClick={e => handleTitleClick(e, conversation.id)}
-                >
-                  {conversation.title}
+                <div className="conversation-text">
+                  <div
+                    className="conversation-title"
+                    onClick={e => handleTitleClick(e, conversation.id)}
+                  >
+                    {conversation.title}
+                  </div>
+                  {conversation.lastMessagePreview && (
+                    <div className="conversation-preview">{conversation.lastMessagePreview}</div>
+                  )}
                 </div>
               )}
               <button
@@ -174,6 +203,13 @@ const ConversationList = ({ onSelectConversation, selectedConversationId }) => {
               </button>
             </li>
           ))}
+          {hasMore && (
+            <li className="load-more-conversations">
+              <button onClick={handleLoadMore} disabled={isLoadingMore}>
+                {isLoadingMore ? 'Loading...' : 'Load more'}
+              </button>
+            </li>
+          )}
         </ul>
       ) : (
         <div className="no-conversations">
@@ -0,0 +1,44 @@
+package com.example.chatservice.config;
+
+import com.example.chatservice.repository.EmbeddingCacheRepository;
+import com.example.chatservice.service.CachingEmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Puts the content-hash embedding cache in front of the Ollama embedding model. Every component
+ * injecting {@link EmbeddingModel} gets the cached one.
+ */
+@Configuration
+public class EmbeddingCacheConfig {
+
+    @Value("${chat.embedding-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.embedding-cache.max-memory-entries:10000}")
+    private int maxMemoryEntries;
+
+    @Value("${chat.embedding-cache.max-entries:1000000}")
+    private long maxEntries;
+
+    @Value("${spring.ai.ollama.embedding.options.model:mxbai-embed-large}")
+    private String modelName;
+
+    @Bean
+    @Primary
+    public EmbeddingModel embeddingModel(
+            @Qualifier("ollamaEmbeddingModel") EmbeddingModel ollamaEmbeddingModel,
+            EmbeddingCacheRepository repository,
+            MeterRegistry meterRegistry) {
+        if (!enabled) {
+            return ollamaEmbeddingModel;
+        }
+        return new CachingEmbeddingModel(ollamaEmbeddingModel, modelName, repository, meterRegistry,
+                maxMemoryEntries, maxEntries);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.chatservice.config;
+
+import com.example.chatservice.service.SimulatedChatModel;
+import com.example.chatservice.service.SimulatedLatency;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * With {@code chat.model.provider=simulated}, every {@code ChatClient} talks to a
+ * {@link SimulatedChatModel} instead of Ollama, so the real controller path (memory, advisors,
+ * admission control, persistence) can be load tested on one machine.
+ * <p>
+ * This does not remove the Ollama dependency. The Ollama chat model is still auto-configured
+ * (set {@code spring.ai.ollama.chat.enabled=false} to skip it), models are still pulled at startup
+ * unless {@code spring.ai.ollama.init.pull-model-strategy=never}, and embeddings for RAG and the
+ * semantic cache always come from Ollama.
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.model.provider", havingValue = "simulated")
+public class SimulatedModelConfig {
+
+    @Value("${chat.model.simulated.latency:fixed:1s}")
+    private String latency;
+
+    @Value("${chat.model.simulated.tokens-per-second:50}")
+    private double tokensPerSecond;
+
+    @Bean
+    @Primary
+    public ChatModel simulatedChatModel() {
+        return new SimulatedChatModel(SimulatedLatency.parse(latency), tokensPerSecond,
+                SimulatedChatModel.DEFAULT_REPLIES);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.chatservice.config;
+
+import com.example.chatservice.vectorstore.FileVectorStore;
+import com.example.chatservice.vectorstore.HnswVectorStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Paths;
+
+@Configuration
+public class VectorStoreConfig {
+
+    @Value("${chat.rag.store-dir:${user.home}/chat_vectors}")
+    private String storeDir;
+
+    /**
+     * Search strategy over the stored vectors: {@code flat} (exact linear scan) or {@code hnsw}.
+     */
+    @Value("${chat.rag.index:flat}")
+    private String index;
+
+    @Value("${chat.rag.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${chat.rag.hnsw.ef-construction:200}")
+    private int hnswEfConstruction;
+
+    @Value("${chat.rag.hnsw.ef-search:64}")
+    private int hnswEfSearch;
+
+    @Bean(destroyMethod = "close")
+    public FileVectorStore fileVectorStore(EmbeddingModel embeddingModel, MeterRegistry meterRegistry) {
+        FileVectorStore store = new FileVectorStore(embeddingModel, Paths.get(storeDir).toAbsolutePath().normalize());
+        Gauge.builder("chat.rag.vectors", store, FileVectorStore::size)
+                .description("Document chunks in the vector store")
+                .register(meterRegistry);
+        return store;
+    }
+
+    @Bean(destroyMethod = "")
+    @Primary
+    public VectorStore vectorStore(EmbeddingModel embeddingModel, FileVectorStore fileVectorStore) {
+        if ("hnsw".equalsIgnoreCase(index)) {
+            return new HnswVectorStore(embeddingModel, fileVectorStore, hnswM, hnswEfConstruction, hnswEfSearch);
+        }
+        return fileVectorStore;
+    }
+}
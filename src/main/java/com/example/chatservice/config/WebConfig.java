@@ -1,6 +1,5 @@
 package com.example.chatservice.config;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
@@ -10,14 +9,10 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.resource.PathResourceResolver;
 
 import java.io.IOException;
-import java.nio.file.Paths;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
     
-    @Value("${file.upload-dir:${user.home}/chat_uploads}")
-    private String uploadDir;
-    
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -53,11 +48,6 @@ public class WebConfig implements WebMvcConfigurer {
                     }
                 });
 
-        // Serve uploaded files
-        String absoluteUploadDir = "file:" + Paths.get(uploadDir).toAbsolutePath().normalize().toString() + "/";
-        registry.addResourceHandler("/api/files/**")
-                .addResourceLocations(absoluteUploadDir)
-                .setCachePeriod(3600)
-                .resourceChain(true);
+        // Uploaded files are served by FileController, which handles ranges and validators
     }
 }
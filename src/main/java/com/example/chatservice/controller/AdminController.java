@@ -0,0 +1,58 @@
+package com.example.chatservice.controller;
+
+import com.example.chatservice.security.AuthenticatedUser;
+import com.example.chatservice.service.UserAccountService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Account administration, restricted to {@code ROLE_ADMIN} (see {@code chat.admin.usernames}).
+ * Disabling or deleting an account takes effect immediately for its outstanding tokens.
+ */
+@RestController
+@RequestMapping("/api/admin/users")
+public class AdminController {
+
+    private final UserAccountService userAccountService;
+
+    public AdminController(UserAccountService userAccountService) {
+        this.userAccountService = userAccountService;
+    }
+
+    @PostMapping("/{userId}/disable")
+    public ResponseEntity<Void> disableUser(
+            @PathVariable Long userId,
+            @AuthenticationPrincipal AuthenticatedUser admin) {
+        requireOtherUser(userId, admin);
+        userAccountService.disableUser(userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/{userId}/enable")
+    public ResponseEntity<Void> enableUser(@PathVariable Long userId) {
+        userAccountService.enableUser(userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{userId}")
+    public ResponseEntity<Void> deleteUser(
+            @PathVariable Long userId,
+            @AuthenticationPrincipal AuthenticatedUser admin) {
+        requireOtherUser(userId, admin);
+        userAccountService.deleteUser(userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static void requireOtherUser(Long userId, AuthenticatedUser admin) {
+        if (userId.equals(admin.getId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Administrators cannot lock themselves out");
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.example.chatservice.model.dto.LoginRequest;
 import com.example.chatservice.model.dto.RegisterRequest;
 import com.example.chatservice.repository.UserRepository;
 import com.example.chatservice.security.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -19,24 +20,30 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
+    private static final String ADMIN_ROLE = "ROLE_ADMIN";
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final List<String> adminUsernames;
 
     public AuthController(
             UserRepository userRepository,
             PasswordEncoder passwordEncoder,
             AuthenticationManager authenticationManager,
-            JwtUtil jwtUtil) {
+            JwtUtil jwtUtil,
+            @Value("${chat.admin.usernames:}") List<String> adminUsernames) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
+        this.adminUsernames = adminUsernames;
     }
 
     @PostMapping("/register")
@@ -55,7 +62,7 @@ public class AuthController {
         User savedUser = userRepository.save(user);
         
         // Generate a JWT token
-        String token = jwtUtil.generateToken(savedUser.getUsername());
+        String token = jwtUtil.generateToken(savedUser.getId(), savedUser.getUsername());
         
         // Return the token with user information
         return ResponseEntity.ok(AuthResponse.of(token, savedUser.getUsername(), savedUser.getId()));
@@ -74,7 +81,7 @@ public class AuthController {
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
             
             // Generate a JWT token
-            String token = jwtUtil.generateToken(request.getUsername());
+            String token = jwtUtil.generateToken(user.getId(), user.getUsername(), rolesFor(user));
             
             // Return the token with user information
             return ResponseEntity.ok(AuthResponse.of(token, user.getUsername(), user.getId()));
@@ -82,5 +89,11 @@ public class AuthController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid username or password");
         }
     }
+
+    private List<String> rolesFor(User user) {
+        return adminUsernames.contains(user.getUsername())
+                ? List.of(JwtUtil.DEFAULT_ROLE, ADMIN_ROLE)
+                : List.of(JwtUtil.DEFAULT_ROLE);
+    }
 }
 
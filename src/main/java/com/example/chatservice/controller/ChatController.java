@@ -3,156 +3,178 @@ package com.example.chatservice.controller;
 import com.example.chatservice.model.ChatRequest;
 import com.example.chatservice.model.ChatResponse;
 import com.example.chatservice.model.Conversation;
-import com.example.chatservice.model.User;
+import com.example.chatservice.model.dto.ConversationSummary;
+import com.example.chatservice.model.dto.ConversationSummaryPage;
+import com.example.chatservice.model.dto.MessagePage;
 import com.example.chatservice.repository.ConversationRepository;
 import com.example.chatservice.repository.UserRepository;
+import com.example.chatservice.security.AuthenticatedUser;
 import com.example.chatservice.service.ChatService;
+import com.example.chatservice.service.ConversationChatMemory;
+import com.example.chatservice.service.ConversationMessageService;
+import com.example.chatservice.service.DocumentIngestionService;
+import com.example.chatservice.service.GenerationLimiter;
+import com.example.chatservice.service.GenerationMetricsAdvisor;
+import com.example.chatservice.service.GenerationRejectedException;
+import com.example.chatservice.service.RagCorpusLoader;
+import com.example.chatservice.service.SemanticResponseCache;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.QuestionAnswerAdvisor;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
     private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
+    private static final String CHAT_SYSTEM_PROMPT = "You are a friendly robot named Morbius.";
+    private static final int MAX_MESSAGE_PAGE_SIZE = 200;
+    private static final int MAX_CONVERSATION_PAGE_SIZE = 100;
     private final ChatService chatService;
     private final UserRepository userRepository;
     private final ConversationRepository conversationRepository;
+    private final ConversationMessageService conversationMessageService;
+    private final ConversationChatMemory chatMemory;
+    private final GenerationLimiter generationLimiter;
+    private final SemanticResponseCache semanticCache;
     private final EmbeddingModel embeddingModel;
+    private final DocumentIngestionService documentIngestionService;
+    private final RagCorpusLoader ragCorpusLoader;
     private final ChatClient chatClient;
-    private final ChatClient vectorChatClient;
+    private final ChatClient documentChatClient;
+    private final long streamTimeout;
 
     public ChatController(
             ChatService chatService, 
             UserRepository userRepository,
             ConversationRepository conversationRepository,
+            ConversationMessageService conversationMessageService,
+            ConversationChatMemory chatMemory,
+            GenerationLimiter generationLimiter,
+            SemanticResponseCache semanticCache,
+            DocumentIngestionService documentIngestionService,
+            RagCorpusLoader ragCorpusLoader,
             EmbeddingModel embeddingModel, 
             ChatClient.Builder chatBuilder, 
-            @Value("classpath:milton.pdf") Resource pdf) {
+            VectorStore vectorStore,
+            GenerationMetricsAdvisor generationMetrics,
+            @Value("${chat.stream.timeout:300000}") long streamTimeout) {
             
         this.chatService = chatService;
+        this.streamTimeout = streamTimeout;
         this.userRepository = userRepository;
         this.conversationRepository = conversationRepository;
+        this.conversationMessageService = conversationMessageService;
+        this.chatMemory = chatMemory;
+        this.generationLimiter = generationLimiter;
+        this.semanticCache = semanticCache;
+        this.documentIngestionService = documentIngestionService;
+        this.ragCorpusLoader = ragCorpusLoader;
         this.embeddingModel = embeddingModel;
 
-        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
-        //vectorStore.add(new TokenTextSplitter().split(new PagePdfDocumentReader(pdf).read()));
-
-        this.chatClient = chatBuilder
-                .defaultSystem("You are a friendly robot named Morbius.") // Set the system prompt
-                .defaultAdvisors(new MessageChatMemoryAdvisor(new InMemoryChatMemory())) // Enable chat memory
-                //.defaultAdvisors(new QuestionAnswerAdvisor(vectorStore)) // Enable RAG
+        // Each client starts from a copy: defaults added to a builder accumulate across build() calls
+        this.chatClient = chatBuilder.clone()
+                .defaultSystem(CHAT_SYSTEM_PROMPT) // Set the system prompt
+                .defaultAdvisors(new MessageChatMemoryAdvisor(chatMemory, "default", chatMemory.getWindowSize())) // Enable per-conversation chat memory
+                .defaultAdvisors(generationMetrics)
                 .build();
 
-        this.vectorChatClient = chatBuilder
-                .defaultSystem("You are useful assistant, expert in hurricanes.") // Set the system prompt
-                .defaultAdvisors(new MessageChatMemoryAdvisor(new InMemoryChatMemory())) // Enable chat memory
-                .defaultAdvisors(new QuestionAnswerAdvisor(vectorStore)) // Enable RAG
+        // Same assistant, with retrieval over the shared corpus and the user's uploaded documents
+        // (filtered per request)
+        this.documentChatClient = chatBuilder.clone()
+                .defaultSystem(CHAT_SYSTEM_PROMPT)
+                .defaultAdvisors(new MessageChatMemoryAdvisor(chatMemory, "default", chatMemory.getWindowSize()))
+                .defaultAdvisors(new QuestionAnswerAdvisor(vectorStore))
+                .defaultAdvisors(generationMetrics)
                 .build();
     }
     
-    /**
-     * Helper method to get the current authenticated user
-     */
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated"));
-    }
-
     @PostMapping(value = "/message_orig", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ChatResponse> handleChatMessage(@RequestBody ChatRequest request) {
+    public Mono<ResponseEntity<ChatResponse>> handleChatMessage(@RequestBody ChatRequest request) {
         logger.info("Received chat message: {}", request.getMessage());
         
-        try {
-            ChatResponse response = chatService.processMessage(request);
-            logger.info("Processed chat message successfully");
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Error processing chat message", e);
-            return ResponseEntity.internalServerError().build();
-        }
+        // Completes asynchronously; no request thread waits for the simulated model
+        return chatService.processMessage(request)
+                .map(response -> {
+                    logger.info("Processed chat message successfully");
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    logger.error("Error processing chat message", e);
+                    return Mono.just(ResponseEntity.internalServerError().build());
+                });
     }
 
     @PostMapping(value = "/message", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ChatResponse> handleChatMessageAi(@RequestBody ChatRequest request) {
+    public ResponseEntity<ChatResponse> handleChatMessageAi(
+            @RequestBody ChatRequest request,
+            @AuthenticationPrincipal AuthenticatedUser user) {
         logger.info("Received chat message: {}", request.getMessage());
 
         try {
-            // Get current user
-            User user = getCurrentUser();
-            
             // Get active conversation or create a new one if conversationId not provided
-            Conversation conversation;
-            if (request.getConversationId() != null) {
-                conversation = conversationRepository.findById(request.getConversationId())
-                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Conversation not found"));
-                
-                // Verify the conversation belongs to the current user
-                if (!conversation.getUser().getId().equals(user.getId())) {
-                    throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this conversation");
-                }
-            } else {
-                // Create a new conversation
-                conversation = new Conversation();
-                conversation.setTitle(generateTitle(request.getMessage()));
-                conversation.setUser(user);
-                conversation = conversationRepository.save(conversation);
-            }
+            Conversation conversation = resolveConversation(request, user);
             
-            // Add user message to conversation
+            // Create user message
             ChatResponse userMessage = new ChatResponse(
                     request.getMessage(),
                     "user",
                     LocalDateTime.now()
             );
-            conversation.addMessage(userMessage);
             
-            // Process the message using AI
+            // Process the message using AI, unless a semantically equivalent first message was answered before
             logger.debug("Sending message to AI: {}", request.getMessage());
+            SemanticResponseCache.Lookup cached = lookupCachedAnswer(conversation, user, request.getMessage());
             String result;
-            try {
-                result = chatClient.prompt(request.getMessage()).call().content();
-                logger.debug("Received AI response: {}", result);
-            } catch (Exception e) {
-                logger.error("Error getting AI response: ", e);
-                throw e;
+            if (cached != null && cached.isHit()) {
+                result = cached.answer();
+                rememberCachedTurn(conversation, request.getMessage(), result);
+            } else {
+                try (GenerationLimiter.Permit permit = generationLimiter.acquire()) {
+                    result = prompt(request.getMessage(), conversation, user)
+                            .call()
+                            .content();
+                    logger.debug("Received AI response: {}", result);
+                } catch (GenerationRejectedException e) {
+                    logger.warn("Chat message rejected by admission control: {}", e.getReason());
+                    throw e;
+                } catch (Exception e) {
+                    logger.error("Error getting AI response: ", e);
+                    throw e;
+                }
+                if (cached != null) {
+                    semanticCache.put(CHAT_SYSTEM_PROMPT, cached.embedding(), result);
+                }
             }
             
-            // Create bot response
-            ChatResponse botResponse = new ChatResponse(
-                    result,
-                    "bot",
-                    LocalDateTime.now()
-            );
-            
-            // Add bot response to conversation
-            conversation.addMessage(botResponse);
-            
-            // Save the updated conversation
-            conversationRepository.save(conversation);
-            
-            // Add conversation ID to response for frontend reference
-            botResponse.setConversationId(conversation.getId());
+            // Create bot response and append both messages of the turn to the conversation
+            ChatResponse botResponse = saveTurn(conversation, userMessage, result);
             
             logger.info("Processed chat message successfully");
             return ResponseEntity.ok(botResponse);
@@ -165,6 +187,218 @@ public class ChatController {
         }
     }
     
+    /**
+     * Streaming variant of {@link #handleChatMessageAi}. Tokens are pushed to the client as
+     * Server-Sent Events ("token") as soon as the model produces them; once the model is done the
+     * assembled reply is saved to the conversation and sent as a final "done" event. If the client
+     * disconnects or the stream times out first, the generation is cancelled and the user message
+     * is saved together with whatever part of the reply had been streamed.
+     */
+    @PostMapping(value = "/message/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter handleChatMessageStream(
+            @RequestBody ChatRequest request,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        logger.info("Received streaming chat message: {}", request.getMessage());
+
+        Conversation conversation = resolveConversation(request, user);
+
+        ChatResponse userMessage = new ChatResponse(
+                request.getMessage(),
+                "user",
+                LocalDateTime.now()
+        );
+
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+
+        SemanticResponseCache.Lookup cached = lookupCachedAnswer(conversation, user, request.getMessage());
+        if (cached != null && cached.isHit()) {
+            // Answer straight from the cache as a single token
+            try {
+                rememberCachedTurn(conversation, request.getMessage(), cached.answer());
+                ChatResponse botResponse = saveTurn(conversation, userMessage, cached.answer());
+                emitter.send(SseEmitter.event().name("token").data(cached.answer()));
+                emitter.send(SseEmitter.event().name("done").data(botResponse, MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (Exception e) {
+                logger.error("Error sending cached chat response", e);
+                emitter.completeWithError(e);
+            }
+            return emitter;
+        }
+
+        // Rejections surface as 503 before the event stream is opened
+        GenerationLimiter.Permit permit = generationLimiter.acquire();
+
+        StringBuffer reply = new StringBuffer();
+        AtomicBoolean clientGone = new AtomicBoolean();
+
+        Flux<String> tokens;
+        try {
+            tokens = prompt(request.getMessage(), conversation, user)
+                    .stream()
+                    .content();
+        } catch (RuntimeException e) {
+            // The doFinally below releases the permit, but it is never attached
+            permit.close();
+            throw e;
+        }
+
+        Disposable subscription = tokens
+                .doFinally(signal -> {
+                    permit.close();
+                    if (signal == SignalType.CANCEL || clientGone.get()) {
+                        savePartialTurn(conversation, userMessage, reply.toString());
+                    }
+                })
+                .subscribe(
+                        token -> {
+                            reply.append(token);
+                            try {
+                                emitter.send(SseEmitter.event().name("token").data(token));
+                            } catch (IOException e) {
+                                // Client went away; end the generation, keeping what was streamed so far
+                                clientGone.set(true);
+                                throw new IllegalStateException("Client disconnected", e);
+                            }
+                        },
+                        error -> {
+                            if (clientGone.get()) {
+                                logger.info("Client disconnected while streaming chat message");
+                            } else {
+                                logger.error("Error streaming AI response: ", error);
+                            }
+                            emitter.completeWithError(error);
+                        },
+                        () -> {
+                            try {
+                                if (cached != null) {
+                                    semanticCache.put(CHAT_SYSTEM_PROMPT, cached.embedding(), reply.toString());
+                                }
+
+                                // Persist the whole turn in a single transaction
+                                ChatResponse botResponse = saveTurn(conversation, userMessage, reply.toString());
+
+                                emitter.send(SseEmitter.event().name("done").data(botResponse, MediaType.APPLICATION_JSON));
+                                emitter.complete();
+                                logger.info("Streamed chat message successfully");
+                            } catch (Exception e) {
+                                logger.error("Error completing streamed chat message", e);
+                                emitter.completeWithError(e);
+                            }
+                        });
+
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+
+        return emitter;
+    }
+
+    /**
+     * Appends the user message and the bot reply to the conversation and returns the bot message.
+     */
+    private ChatResponse saveTurn(Conversation conversation, ChatResponse userMessage, String reply) {
+        ChatResponse botResponse = new ChatResponse(
+                reply,
+                "bot",
+                LocalDateTime.now()
+        );
+        conversationMessageService.appendMessages(conversation.getId(), List.of(userMessage, botResponse));
+
+        // Add conversation ID to response for frontend reference
+        botResponse.setConversationId(conversation.getId());
+        return botResponse;
+    }
+
+    /**
+     * Saves the turn of a stream that ended early: the user message, and the bot reply when any of
+     * it had been streamed.
+     */
+    private void savePartialTurn(Conversation conversation, ChatResponse userMessage, String reply) {
+        try {
+            if (reply.isEmpty()) {
+                conversationMessageService.appendMessages(conversation.getId(), List.of(userMessage));
+            } else {
+                saveTurn(conversation, userMessage, reply);
+            }
+        } catch (Exception e) {
+            logger.error("Error saving interrupted chat message", e);
+        }
+    }
+
+    /**
+     * Consults the semantic cache for the opening message of a conversation. Later turns depend on
+     * the conversation's history, so they always go to the model. Returns null when not applicable.
+     */
+    private SemanticResponseCache.Lookup lookupCachedAnswer(Conversation conversation, AuthenticatedUser user, String message) {
+        Integer messageCount = conversation.getMessageCount();
+        // Answers grounded in a user's own documents must not be shared
+        if (!semanticCache.isEnabled() || messageCount == null || messageCount > 0
+                || documentIngestionService.hasDocuments(user.getId())) {
+            return null;
+        }
+        return semanticCache.lookup(CHAT_SYSTEM_PROMPT, message);
+    }
+
+    /**
+     * Starts a prompt in the conversation's chat memory, retrieving from the shared corpus and the
+     * user's uploaded documents once there is anything to retrieve.
+     */
+    private ChatClient.ChatClientRequestSpec prompt(String message, Conversation conversation, AuthenticatedUser user) {
+        String retrievalFilter = retrievalFilter(user);
+        return (retrievalFilter != null ? documentChatClient : chatClient).prompt(message)
+                .advisors(a -> {
+                    a.param(AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY, conversation.getId().toString());
+                    if (retrievalFilter != null) {
+                        a.param(QuestionAnswerAdvisor.FILTER_EXPRESSION, retrievalFilter);
+                    }
+                });
+    }
+
+    /**
+     * The chunks a user may retrieve: the shared corpus and their own documents. Null when there
+     * are none, so the prompt skips the query embedding altogether.
+     */
+    private String retrievalFilter(AuthenticatedUser user) {
+        boolean withDocuments = documentIngestionService.hasDocuments(user.getId());
+        boolean withCorpus = ragCorpusLoader.hasCorpus();
+        if (withDocuments && withCorpus) {
+            return DocumentIngestionService.ownerFilter(user.getId()) + " || " + RagCorpusLoader.CORPUS_FILTER;
+        }
+        if (withDocuments) {
+            return DocumentIngestionService.ownerFilter(user.getId());
+        }
+        return withCorpus ? RagCorpusLoader.CORPUS_FILTER : null;
+    }
+
+    /**
+     * A cached answer bypasses the memory advisor, so record the turn in chat memory ourselves.
+     */
+    private void rememberCachedTurn(Conversation conversation, String message, String answer) {
+        chatMemory.add(conversation.getId().toString(), List.of(new UserMessage(message), new AssistantMessage(answer)));
+    }
+
+    /**
+     * Loads the conversation referenced by the request (checking ownership) or creates a new one.
+     */
+    private Conversation resolveConversation(ChatRequest request, AuthenticatedUser user) {
+        if (request.getConversationId() != null) {
+            Conversation conversation = conversationRepository.findById(request.getConversationId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Conversation not found"));
+
+            // Verify the conversation belongs to the current user
+            if (!conversation.getUser().getId().equals(user.getId())) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this conversation");
+            }
+            return conversation;
+        }
+
+        // Create a new conversation
+        Conversation conversation = new Conversation();
+        conversation.setTitle(generateTitle(request.getMessage()));
+        conversation.setUser(userRepository.getReferenceById(user.getId()));
+        return conversationRepository.save(conversation);
+    }
+    
     private String generateTitle(String message) {
         // Generate a title based on the first message (truncated if necessary)
         return message.length() <= 30 ? message : message.substring(0, 27) + "...";
@@ -172,19 +406,20 @@ public class ChatController {
 
 
     @GetMapping(value = "/message", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ChatResponse> handleChatGet(@RequestParam String message) {
+    public Mono<ResponseEntity<ChatResponse>> handleChatGet(@RequestParam String message) {
         logger.info("Received GET chat message: {}", message);
         
-        try {
-            ChatRequest request = new ChatRequest();
-            request.setMessage(message);
-            ChatResponse response = chatService.processMessage(request);
-            logger.info("Processed GET chat message successfully");
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Error processing GET chat message", e);
-            return ResponseEntity.internalServerError().build();
-        }
+        ChatRequest request = new ChatRequest();
+        request.setMessage(message);
+        return chatService.processMessage(request)
+                .map(response -> {
+                    logger.info("Processed GET chat message successfully");
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    logger.error("Error processing GET chat message", e);
+                    return Mono.just(ResponseEntity.internalServerError().build());
+                });
     }
 
     @GetMapping("/health")
@@ -196,34 +431,42 @@ public class ChatController {
      * Create a new conversation
      */
     @PostMapping("/conversations")
-    public ResponseEntity<Conversation> createConversation(@RequestBody Map<String, String> request) {
-        User user = getCurrentUser();
-        
+    public ResponseEntity<Conversation> createConversation(
+            @RequestBody Map<String, String> request,
+            @AuthenticationPrincipal AuthenticatedUser user) {
         Conversation conversation = new Conversation();
         conversation.setTitle(request.getOrDefault("title", "New Conversation"));
-        conversation.setUser(user);
+        conversation.setUser(userRepository.getReferenceById(user.getId()));
         
         Conversation savedConversation = conversationRepository.save(conversation);
         return ResponseEntity.ok(savedConversation);
     }
     
     /**
-     * Get all conversations for the current user
+     * Get a page of conversation summaries for the current user, most recently updated first
      */
     @GetMapping("/conversations")
-    public ResponseEntity<List<Conversation>> getConversations() {
-        User user = getCurrentUser();
-        List<Conversation> conversations = conversationRepository.findByUserIdOrderByUpdatedAtDesc(user.getId());
-        return ResponseEntity.ok(conversations);
+    public ResponseEntity<ConversationSummaryPage> getConversations(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        if (page < 0 || size < 1 || size > MAX_CONVERSATION_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Page must be >= 0 and size between 1 and " + MAX_CONVERSATION_PAGE_SIZE);
+        }
+
+        Slice<ConversationSummary> summaries =
+                conversationRepository.findSummariesByUserId(user.getId(), PageRequest.of(page, size));
+        return ResponseEntity.ok(ConversationSummaryPage.of(summaries.getContent(), page, summaries.hasNext()));
     }
     
     /**
      * Get a specific conversation by ID
      */
     @GetMapping("/conversations/{id}")
-    public ResponseEntity<Conversation> getConversation(@PathVariable Long id) {
-        User user = getCurrentUser();
-        
+    public ResponseEntity<Conversation> getConversation(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthenticatedUser user) {
         Conversation conversation = conversationRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Conversation not found"));
         
@@ -232,16 +475,43 @@ public class ChatController {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this conversation");
         }
         
+        conversation.setMessages(conversationMessageService.getMessages(conversation.getId()));
         return ResponseEntity.ok(conversation);
     }
     
+    /**
+     * Get a window of a conversation's messages, newest page first. Pass the returned
+     * {@code nextBefore} as {@code before} to load older history.
+     */
+    @GetMapping("/conversations/{id}/messages")
+    public ResponseEntity<MessagePage> getConversationMessages(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        Conversation conversation = conversationRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Conversation not found"));
+
+        // Check if conversation belongs to the current user
+        if (!conversation.getUser().getId().equals(user.getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this conversation");
+        }
+
+        if (limit < 1 || limit > MAX_MESSAGE_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Limit must be between 1 and " + MAX_MESSAGE_PAGE_SIZE);
+        }
+
+        return ResponseEntity.ok(conversationMessageService.getMessagesBefore(id, before, limit));
+    }
+    
     /**
      * Delete a conversation
      */
     @DeleteMapping("/conversations/{id}")
-    public ResponseEntity<Void> deleteConversation(@PathVariable Long id) {
-        User user = getCurrentUser();
-        
+    public ResponseEntity<Void> deleteConversation(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthenticatedUser user) {
         Conversation conversation = conversationRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Conversation not found"));
         
@@ -250,7 +520,8 @@ public class ChatController {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this conversation");
         }
         
-        conversationRepository.delete(conversation);
+        conversationMessageService.deleteConversation(conversation.getId());
+        chatMemory.clear(conversation.getId().toString());
         return ResponseEntity.noContent().build();
     }
 
@@ -260,9 +531,8 @@ public class ChatController {
     @PostMapping("/conversations/{id}")
     public ResponseEntity<Conversation> updateConversation(
             @PathVariable Long id,
-            @RequestBody Map<String, String> request) {
-        User user = getCurrentUser();
-
+            @RequestBody Map<String, String> request,
+            @AuthenticationPrincipal AuthenticatedUser user) {
         Conversation conversation = conversationRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Conversation not found"));
 
@@ -1,86 +1,446 @@
 package com.example.chatservice.controller;
 
 import com.example.chatservice.model.FileInfo;
+import com.example.chatservice.model.StoredBlob;
+import com.example.chatservice.model.dto.FileInfoPage;
+import com.example.chatservice.model.dto.IngestionStatus;
+import com.example.chatservice.model.dto.StorageUsage;
+import com.example.chatservice.model.dto.UploadStartRequest;
+import com.example.chatservice.model.dto.UploadStatus;
+import com.example.chatservice.security.AuthenticatedUser;
+import com.example.chatservice.service.ChunkedUploadService;
+import com.example.chatservice.service.DocumentIngestionService;
 import com.example.chatservice.service.FileStorageService;
+import com.example.chatservice.service.ImageVariantService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.EOFException;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.HashMap;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/files")
 public class FileController {
+    private static final int MAX_FILE_PAGE_SIZE = 100;
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Common mime types, for files uploaded without one
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("pdf", "application/pdf"),
+            Map.entry("doc", "application/msword"),
+            Map.entry("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"),
+            Map.entry("xls", "application/vnd.ms-excel"),
+            Map.entry("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+            Map.entry("ppt", "application/vnd.ms-powerpoint"),
+            Map.entry("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation"),
+            Map.entry("rtf", "application/rtf"),
+            Map.entry("txt", "text/plain"),
+            Map.entry("csv", "text/csv"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("png", "image/png"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("mp3", "audio/mpeg"),
+            Map.entry("wav", "audio/wav"),
+            Map.entry("ogg", "audio/ogg"),
+            Map.entry("mp4", "video/mp4"),
+            Map.entry("webm", "video/webm"),
+            Map.entry("avi", "video/x-msvideo"),
+            Map.entry("mov", "video/quicktime"),
+            Map.entry("zip", "application/zip"),
+            Map.entry("rar", "application/vnd.rar"),
+            Map.entry("7z", "application/x-7z-compressed")
+    );
 
     private final FileStorageService fileStorageService;
-    
-    @Value("${file.upload-dir:./uploads}")
-    private String uploadDir;
+    private final DocumentIngestionService documentIngestionService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final ImageVariantService imageVariantService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.download.sendfile.enabled:true}")
+    private boolean sendfileEnabled;
+
+    @Value("${chat.download.sendfile.min-size:48KB}")
+    private DataSize sendfileThreshold;
 
     @Autowired
-    public FileController(FileStorageService fileStorageService) {
+    public FileController(
+            FileStorageService fileStorageService,
+            DocumentIngestionService documentIngestionService,
+            ChunkedUploadService chunkedUploadService,
+            ImageVariantService imageVariantService,
+            MeterRegistry meterRegistry) {
         this.fileStorageService = fileStorageService;
+        this.documentIngestionService = documentIngestionService;
+        this.chunkedUploadService = chunkedUploadService;
+        this.imageVariantService = imageVariantService;
+        this.meterRegistry = meterRegistry;
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<FileInfo> uploadFile(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<FileInfo> uploadFile(
+            @RequestParam("file") MultipartFile file,
+            @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            FileInfo fileInfo = fileStorageService.storeFile(file);
+            FileInfo fileInfo = fileStorageService.storeFile(file, user.getId());
+            // Documents are made searchable in the background; poll /{fileName}/ingestion for progress
+            if (documentIngestionService.supports(fileInfo)) {
+                documentIngestionService.submit(fileInfo, user.getId());
+            }
             return ResponseEntity.ok(fileInfo);
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace(); // Log the error
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * The user's files, newest first.
+     */
+    @GetMapping
+    public ResponseEntity<FileInfoPage> listFiles(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        if (page < 0 || size < 1 || size > MAX_FILE_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Page must be >= 0 and size between 1 and " + MAX_FILE_PAGE_SIZE);
+        }
+        return ResponseEntity.ok(fileStorageService.listFiles(user.getId(), page, size));
+    }
+
+    @GetMapping("/usage")
+    public ResponseEntity<StorageUsage> getUsage(@AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(fileStorageService.getUsage(user.getId()));
+    }
+
+    /**
+     * Starts a resumable chunked upload (no 10MB limit). Send the bytes with
+     * {@code PUT /uploads/{uploadId}?offset=N}, then {@code POST /uploads/{uploadId}/complete}.
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadStatus> startUpload(
+            @RequestBody UploadStartRequest request,
+            @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        return ResponseEntity.ok(chunkedUploadService.start(request, user.getId()));
+    }
+
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadStatus> uploadChunk(
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            HttpServletRequest request,
+            @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).build();
+        }
+        return ResponseEntity.ok(chunkedUploadService.writeChunk(uploadId, user.getId(), offset, length, request.getInputStream()));
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<UploadStatus> getUploadStatus(
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(chunkedUploadService.getStatus(uploadId, user.getId()));
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<FileInfo> completeUpload(
+            @PathVariable String uploadId,
+            @RequestParam(required = false) String sha256,
+            @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        FileInfo fileInfo = chunkedUploadService.complete(uploadId, user.getId(), sha256);
+        if (documentIngestionService.supports(fileInfo)) {
+            documentIngestionService.submit(fileInfo, user.getId());
+        }
+        return ResponseEntity.ok(fileInfo);
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Void> abortUpload(
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        chunkedUploadService.abort(uploadId, user.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Downloads a file. Supports single byte ranges (so media can seek), a strong ETag and
+     * Last-Modified with the matching conditional headers ({@code 304}/{@code 412}), and HEAD.
+     * Large bodies are handed to Tomcat's sendfile when available, otherwise copied with
+     * {@link FileChannel#transferTo}.
+     * <p>
+     * For images, {@code ?w=N} serves a downscaled variant at least {@code N} pixels wide instead
+     * (or the original if it is no wider).
+     * <p>
+     * Files stored gzipped are sent as stored, with {@code Content-Encoding: gzip}, to clients
+     * that accept it; range requests and other clients get them decompressed while streaming.
+     * <p>
+     * The content type comes from the stored name's extension, which was validated at upload, not
+     * from the type the client claimed. Every response is sandboxed and SVG is never shown inline,
+     * since an uploaded file must not run script on this origin.
+     */
     @GetMapping("/{fileName:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileName) {
-        try {
-            Path filePath = Paths.get(uploadDir).toAbsolutePath().normalize().resolve(fileName);
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists()) {
-                String contentType = determineContentType(fileName);
-                
-                return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
+    public void downloadFile(
+            @PathVariable String fileName,
+            @RequestParam(value = "w", required = false) Integer width,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        FileStorageService.StoredContent content = fileStorageService.describe(fileName);
+        if (content == null || !Files.isReadable(content.path())) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        if (width != null && width <= 0) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "w must be positive");
+            return;
+        }
+
+        String contentType = determineContentType(fileName);
+        String version = content.sha256() != null
+                ? content.sha256()
+                : Long.toHexString(content.size()) + "-" + Long.toHexString(content.lastModified());
+        boolean resize = width != null && imageVariantService.supports(contentType);
+        if (resize) {
+            width = imageVariantService.snapWidth(width);
+            version += "-w" + width;
+        }
+        // Ranges always refer to the decoded bytes
+        boolean sendGzipped = content.gzipped() && request.getHeader(HttpHeaders.RANGE) == null
+                && acceptsGzip(request);
+        if (content.gzipped()) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (sendGzipped) {
+            // A different representation, so it needs its own strong validator
+            version += "-gzip";
+        }
+        // Validated before any variant is rendered, so revalidation stays cheap
+        String etag = "\"" + version + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag, content.lastModified())) {
+            return;
+        }
+
+        if (resize) {
+            FileStorageService.StoredContent variant = imageVariantService.variant(content, contentType, width);
+            if (variant != null) {
+                content = variant;
+                contentType = variant.contentType();
+            }
+        }
+
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // A file name always refers to the same bytes
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader("Content-Security-Policy", "sandbox");
+        boolean inline = (contentType.startsWith("image/") && !contentType.equals("image/svg+xml"))
+                || contentType.startsWith("video/") || contentType.startsWith("audio/");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                (inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                        .filename(content.originalFileName(), StandardCharsets.UTF_8)
+                        .build()
+                        .toString());
+
+        if (sendGzipped) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, StoredBlob.GZIP);
+            response.setContentLengthLong(content.storedSize());
+            if (!"HEAD".equals(request.getMethod())) {
+                transfer(content.path(), 0, content.storedSize(), request, response);
+            }
+            return;
+        }
+
+        long size = content.size();
+        long start = 0;
+        long length = size;
+        HttpRange range = requestedRange(request, etag, content.lastModified());
+        if (range != null) {
+            if (size == 0 || range.getRangeStart(size) >= size) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            start = range.getRangeStart(size);
+            length = range.getRangeEnd(size) - start + 1;
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+        }
+        response.setContentLengthLong(length);
+
+        if (!"HEAD".equals(request.getMethod()) && length > 0) {
+            if (content.gzipped()) {
+                try (InputStream in = fileStorageService.openStream(content)) {
+                    in.skipNBytes(start);
+                    copy(in, response.getOutputStream(), length);
+                }
+                countDownloaded("decoded", length);
             } else {
-                return ResponseEntity.notFound().build();
+                transfer(content.path(), start, length, request, response);
             }
-        } catch (MalformedURLException e) {
-            return ResponseEntity.badRequest().build();
         }
     }
+
+    /**
+     * Deletes one of the user's files. Other files with identical content are unaffected.
+     */
+    @DeleteMapping("/{fileName:.+}")
+    public ResponseEntity<Void> deleteFile(
+            @PathVariable String fileName,
+            @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        if (!fileStorageService.deleteFile(fileName, user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+        documentIngestionService.remove(fileName, user.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{fileName}/ingestion")
+    public ResponseEntity<IngestionStatus> getIngestionStatus(
+            @PathVariable String fileName,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        IngestionStatus status = documentIngestionService.getStatus(fileName, user.getId());
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
     
-    private String determineContentType(String fileName) {
+    /**
+     * The single range the client asked for, or null to send the whole file. The Range header is
+     * ignored when If-Range no longer matches, and multi-range requests get the whole file too.
+     */
+    private static HttpRange requestedRange(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            if (date == -1 || lastModified / 1000 > date / 1000) {
+                return null;
+            }
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (!parts[0].trim().equalsIgnoreCase(StoredBlob.GZIP)) {
+                    continue;
+                }
+                // gzip;q=0 explicitly refuses it
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=") && parameter.substring(2).trim().matches("0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void copy(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Stored file ended " + remaining + " bytes early");
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private void transfer(Path path, long start, long length,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (sendfileEnabled && length >= sendfileThreshold.toBytes()
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file to the socket itself once we return (zero-copy)
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            countDownloaded("sendfile", length);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            countDownloaded("channel", position - start);
+        }
+    }
+
+    private void countDownloaded(String transfer, long bytes) {
+        Counter.builder("chat.files.download.bytes")
+                .description("File bytes sent to clients, by how they were written")
+                .baseUnit("bytes")
+                .tag("transfer", transfer)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+
+    private static String determineContentType(String fileName) {
         String fileExtension = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
-        Map<String, String> contentTypeMap = new HashMap<>();
-        
-        // Common mime types
-        contentTypeMap.put("pdf", "application/pdf");
-        contentTypeMap.put("doc", "application/msword");
-        contentTypeMap.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
-        contentTypeMap.put("txt", "text/plain");
-        contentTypeMap.put("jpg", "image/jpeg");
-        contentTypeMap.put("jpeg", "image/jpeg");
-        contentTypeMap.put("png", "image/png");
-        contentTypeMap.put("gif", "image/gif");
-        contentTypeMap.put("mp3", "audio/mpeg");
-        contentTypeMap.put("mp4", "video/mp4");
-        
-        return contentTypeMap.getOrDefault(fileExtension, "application/octet-stream");
+        return CONTENT_TYPES.getOrDefault(fileExtension, MediaType.APPLICATION_OCTET_STREAM_VALUE);
     }
 }
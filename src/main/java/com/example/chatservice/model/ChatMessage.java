@@ -0,0 +1,91 @@
+package com.example.chatservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * A single message of a conversation, stored as its own row so appending a turn is a single insert.
+ * Rows are ordered within a conversation by {@code sequence}, starting at 0.
+ * <p>
+ * Text and attachment are kept in {@code body}, encoded by {@code MessageCodec}; {@code attachment}
+ * repeats just the attached file's name for lookups. Rows written before the codec existed have
+ * no body and keep their content in the {@code message} and {@code file_info} text columns.
+ */
+@Entity
+@Table(name = "chat_messages",
+        uniqueConstraints = @UniqueConstraint(name = "uk_chat_messages_conversation_sequence",
+                columnNames = {"conversation_id", "sequence"}))
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    @Column(name = "sequence", nullable = false)
+    private long sequence;
+
+    @Column(name = "message", columnDefinition = "TEXT")
+    private String message;
+
+    @Column(name = "sender", length = 16)
+    private String sender;
+
+    @Column(name = "timestamp")
+    private LocalDateTime timestamp;
+
+    @Convert(converter = FileInfoJsonConverter.class)
+    @Column(name = "file_info", columnDefinition = "TEXT")
+    private FileInfo fileInfo;
+
+    @Column(name = "body", length = 1_048_576)
+    @ToString.Exclude
+    private byte[] body;
+
+    @Column(name = "attachment")
+    private String attachment;
+
+    /**
+     * A row for {@code response}, whose text and attachment have been encoded into {@code body}.
+     */
+    public static ChatMessage of(Long conversationId, long sequence, ChatResponse response, byte[] body) {
+        ChatMessage chatMessage = new ChatMessage();
+        chatMessage.setConversationId(conversationId);
+        chatMessage.setSequence(sequence);
+        chatMessage.setSender(response.getSender());
+        chatMessage.setTimestamp(response.getTimestamp());
+        chatMessage.setBody(body);
+        chatMessage.setAttachment(response.getFileInfo() != null ? response.getFileInfo().getFileName() : null);
+        return chatMessage;
+    }
+
+    /**
+     * The message as stored in the legacy text columns.
+     */
+    public ChatResponse toChatResponse() {
+        return toChatResponse(message, fileInfo);
+    }
+
+    /**
+     * The message with the given (decoded) text and attachment.
+     */
+    public ChatResponse toChatResponse(String text, FileInfo attachedFile) {
+        ChatResponse response = new ChatResponse(text, sender, timestamp, conversationId);
+        response.setFileInfo(attachedFile);
+        response.setSequence(sequence);
+        return response;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.chatservice.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -23,6 +24,10 @@ public class ChatResponse {
     
     private Long conversationId;
     
+    // Position within the conversation; only set for messages read back from storage
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long sequence;
+    
     public ChatResponse(String message, String sender, LocalDateTime timestamp) {
         this.message = message;
         this.sender = sender;
@@ -1,10 +1,7 @@
 package com.example.chatservice.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -12,22 +9,30 @@ import lombok.Setter;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A conversation owned by a user. Messages live in their own table (see {@link ChatMessage});
+ * {@code messagesJson} only holds the legacy serialized history of conversations that have not
+ * been migrated yet. Updates are dynamic so saving a title never overwrites the message counters
+ * maintained by the message store.
+ */
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations",
+        indexes = @Index(name = "idx_conversations_user_updated", columnList = "user_id, updated_at"))
+@DynamicUpdate
 @Getter
 @Setter
 @EqualsAndHashCode(exclude = {"user"})
-@ToString(exclude = {"user"})
+@ToString(exclude = {"user", "messagesJson"})
 @NoArgsConstructor
 @AllArgsConstructor
 public class Conversation {
-    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Conversation.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    public static final int PREVIEW_LENGTH = 120;
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -37,8 +42,15 @@ public class Conversation {
     private String title;
 
     @Column(name = "messages", columnDefinition = "TEXT")
+    @JsonIgnore
     private String messagesJson;
 
+    @Column(name = "message_count")
+    private Integer messageCount;
+
+    @Column(name = "last_message_preview", length = PREVIEW_LENGTH)
+    private String lastMessagePreview;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference
@@ -55,54 +67,29 @@ public class Conversation {
 
     public List<ChatResponse> getMessages() {
         if (messages == null) {
-            try {
-                if (messagesJson != null && !messagesJson.isEmpty()) {
-                    messages = objectMapper.readValue(messagesJson, new TypeReference<List<ChatResponse>>() {});
-                    logger.debug("Deserialized messages: {}", messages);
-                } else {
-                    messages = new ArrayList<>();
-                }
-            } catch (JsonProcessingException e) {
-                messages = new ArrayList<>();
-            }
+            messages = new ArrayList<>();
         }
         return messages;
     }
 
-    public void setMessages(List<ChatResponse> messages) {
-        this.messages = messages;
-        try {
-            this.messagesJson = objectMapper.writeValueAsString(messages);
-            logger.debug("Serialized messages to JSON: {}", this.messagesJson);
-        } catch (JsonProcessingException e) {
-            this.messagesJson = "[]";
-        }
-    }
-
-    public void addMessage(ChatResponse message) {
-        List<ChatResponse> currentMessages = new ArrayList<>();
-        try {
-            if (messagesJson != null && !messagesJson.isEmpty()) {
-                currentMessages = objectMapper.readValue(messagesJson, new TypeReference<List<ChatResponse>>() {});
-            }
-        } catch (JsonProcessingException e) {
-            logger.error("Error deserializing messagesJson", e);
-        }
-        currentMessages.add(message);
-        try {
-            this.messagesJson = objectMapper.writeValueAsString(currentMessages);
-            logger.debug("Serialized messages to JSON: {}", this.messagesJson);
-        } catch (JsonProcessingException e) {
-            logger.error("Error serializing messages", e);
-            this.messagesJson = "[]";
+    /**
+     * Shortens a message to what the sidebar shows under the title.
+     */
+    public static String preview(String message) {
+        if (message == null) {
+            return null;
         }
-        this.updatedAt = LocalDateTime.now();
+        String singleLine = message.replaceAll("\\s+", " ").trim();
+        return singleLine.length() <= PREVIEW_LENGTH ? singleLine : singleLine.substring(0, PREVIEW_LENGTH - 3) + "...";
     }
 
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        if (this.messageCount == null) {
+            this.messageCount = 0;
+        }
     }
 
     @PreUpdate
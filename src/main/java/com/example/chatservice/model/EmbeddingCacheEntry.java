@@ -0,0 +1,70 @@
+package com.example.chatservice.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A cached embedding, keyed by the SHA-256 of the embedding model name and the embedded text.
+ * The vector is stored as little-endian float bytes.
+ */
+@Entity
+@Table(name = "embedding_cache", indexes = @Index(name = "idx_embedding_cache_last_used", columnList = "last_used_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class EmbeddingCacheEntry implements Persistable<String> {
+
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Lob
+    @Column(name = "vector", nullable = false)
+    private byte[] vector;
+
+    @Column(name = "last_used_at", nullable = false)
+    private long lastUsedAt;
+
+    // Entries are only ever inserted, so skip the select that merge would do first
+    @Transient
+    private boolean isNew = true;
+
+    public EmbeddingCacheEntry(String hash, float[] vector, long lastUsedAt) {
+        this.hash = hash;
+        this.vector = toBytes(vector);
+        this.lastUsedAt = lastUsedAt;
+    }
+
+    public float[] toVector() {
+        float[] result = new float[vector.length / Float.BYTES];
+        ByteBuffer.wrap(vector).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(result);
+        return result;
+    }
+
+    @Override
+    public String getId() {
+        return hash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    void markLoaded() {
+        isNew = false;
+    }
+
+    private static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.chatservice.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores an optional {@link FileInfo} attachment as a small JSON document.
+ */
+@Converter
+public class FileInfoJsonConverter implements AttributeConverter<FileInfo, String> {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public String convertToDatabaseColumn(FileInfo fileInfo) {
+        if (fileInfo == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(fileInfo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize file info", e);
+        }
+    }
+
+    @Override
+    public FileInfo convertToEntityAttribute(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, FileInfo.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not deserialize file info", e);
+        }
+    }
+}
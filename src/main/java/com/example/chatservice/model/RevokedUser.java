@@ -0,0 +1,29 @@
+package com.example.chatservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * A user whose tokens issued up to {@code revokedAt} (epoch millis) are rejected. Kept in its own
+ * table rather than on {@link User} so revocations outlive deleted accounts.
+ */
+@Entity
+@Table(name = "revoked_users")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedUser {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private long revokedAt;
+}
@@ -0,0 +1,56 @@
+package com.example.chatservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * The bytes of an upload, stored once per distinct content under its SHA-256.
+ * {@code referenceCount} is the number of {@link StoredFile}s pointing at it; the blob is deleted
+ * when it drops to zero.
+ * <p>
+ * Compressible content is stored gzipped: {@code contentEncoding} is then {@code gzip} and
+ * {@code storedSize} the size on disk. Both are null for blobs stored before compression.
+ */
+@Entity
+@Table(name = "stored_blobs")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredBlob {
+    public static final String GZIP = "gzip";
+
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "size", nullable = false)
+    private long size;
+
+    @Column(name = "stored_size")
+    private Long storedSize;
+
+    @Column(name = "content_encoding", length = 16)
+    private String contentEncoding;
+
+    @Column(name = "reference_count", nullable = false)
+    private long referenceCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public boolean isGzipped() {
+        return GZIP.equals(contentEncoding);
+    }
+
+    public long getStoredSizeOrSize() {
+        return storedSize != null ? storedSize : size;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.chatservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user-visible uploaded file. {@code fileName} is the unique name used in URLs; the content
+ * lives in the {@link StoredBlob} with hash {@code blobHash}, which identical uploads share.
+ * Files migrated from the flat upload directory keep their name, and have no owner when none of
+ * the user's messages referenced them.
+ */
+@Entity
+@Table(name = "stored_files", indexes = {
+        @Index(name = "idx_stored_files_blob", columnList = "blob_hash"),
+        @Index(name = "idx_stored_files_owner_created", columnList = "owner_id, created_at")
+})
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFile {
+
+    @Id
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "blob_hash", length = 64, nullable = false)
+    private String blobHash;
+
+    @Column(name = "owner_id")
+    private Long ownerId;
+
+    @Column(name = "original_file_name")
+    private String originalFileName;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "size", nullable = false)
+    private long size;
+
+    @Column(name = "file_type", length = 16)
+    private String fileType;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // size / bytes on disk; 1.0 when stored uncompressed, null if recorded before compression
+    @Column(name = "compression_ratio")
+    private Double compressionRatio;
+
+    public FileInfo toFileInfo() {
+        return new FileInfo(fileName, originalFileName, contentType, size, "/api/files/" + fileName, fileType);
+    }
+}
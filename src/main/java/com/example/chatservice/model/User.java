@@ -33,6 +33,10 @@ public class User {
     @Column(nullable = false)
     private String password;
     
+    // Disabled accounts can't log in and their outstanding tokens are revoked
+    @Column(name = "enabled", nullable = false, columnDefinition = "BOOLEAN DEFAULT TRUE")
+    private boolean enabled = true;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
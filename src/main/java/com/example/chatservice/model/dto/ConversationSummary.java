@@ -0,0 +1,21 @@
+package com.example.chatservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sidebar view of a conversation, read without loading any message content.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummary {
+    private Long id;
+    private String title;
+    private LocalDateTime updatedAt;
+    private Integer messageCount;
+    private String lastMessagePreview;
+}
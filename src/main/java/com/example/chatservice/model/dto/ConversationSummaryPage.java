@@ -0,0 +1,20 @@
+package com.example.chatservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummaryPage {
+    private List<ConversationSummary> conversations;
+    private int page;
+    private boolean hasMore;
+
+    public static ConversationSummaryPage of(List<ConversationSummary> conversations, int page, boolean hasMore) {
+        return new ConversationSummaryPage(conversations, page, hasMore);
+    }
+}
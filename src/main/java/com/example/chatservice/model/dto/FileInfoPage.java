@@ -0,0 +1,21 @@
+package com.example.chatservice.model.dto;
+
+import com.example.chatservice.model.FileInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileInfoPage {
+    private List<FileInfo> files;
+    private int page;
+    private boolean hasMore;
+
+    public static FileInfoPage of(List<FileInfo> files, int page, boolean hasMore) {
+        return new FileInfoPage(files, page, hasMore);
+    }
+}
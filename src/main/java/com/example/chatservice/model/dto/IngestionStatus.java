@@ -0,0 +1,39 @@
+package com.example.chatservice.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of an uploaded document through the ingestion pipeline. {@code embeddedChunks}
+ * counts up to {@code totalChunks} while the document is being embedded.
+ * <p>
+ * Updated by an ingestion worker while request threads read it, hence the volatile fields.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IngestionStatus {
+    public enum State {
+        QUEUED, EXTRACTING, EMBEDDING, READY, FAILED
+    }
+
+    private volatile String fileName;
+    @JsonIgnore
+    private volatile Long ownerId;
+    private volatile State state;
+    private volatile Integer totalChunks;
+    private volatile int embeddedChunks;
+    private volatile String error;
+    private volatile LocalDateTime updatedAt;
+
+    public IngestionStatus(String fileName, Long ownerId, State state) {
+        this.fileName = fileName;
+        this.ownerId = ownerId;
+        this.state = state;
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.chatservice.model.dto;
+
+import com.example.chatservice.model.ChatResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A window of a conversation's history, oldest message first. To load older messages, request
+ * the next page with {@code before = nextBefore}; {@code nextBefore} is null when there are none.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePage {
+    private List<ChatResponse> messages;
+    private Long nextBefore;
+    private boolean hasMore;
+
+    public static MessagePage of(List<ChatResponse> messages, Long nextBefore, boolean hasMore) {
+        return new MessagePage(messages, nextBefore, hasMore);
+    }
+}
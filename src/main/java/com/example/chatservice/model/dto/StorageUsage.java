@@ -0,0 +1,18 @@
+package com.example.chatservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A user's stored files. Sizes are logical: a file counts in full even when its content is
+ * shared with another upload.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageUsage {
+    private long files;
+    private long bytes;
+    private long quotaBytes; // 0 when unlimited
+}
@@ -0,0 +1,19 @@
+package com.example.chatservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Starts a chunked upload. {@code sha256} (hex) is optional here and may instead be given when
+ * the upload is completed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStartRequest {
+    private String fileName;
+    private String contentType;
+    private long size;
+    private String sha256;
+}
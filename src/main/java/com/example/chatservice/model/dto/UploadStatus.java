@@ -0,0 +1,23 @@
+package com.example.chatservice.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * State of a chunked upload. {@code received} lists the byte ranges already written as
+ * {@code [start, end)} pairs, so a client resuming after a failure only resends the gaps.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatus {
+    private String uploadId;
+    private String fileName;
+    private long size;
+    private long bytesReceived;
+    private List<long[]> received;
+    private int maxChunkSize;
+}
@@ -0,0 +1,42 @@
+package com.example.chatservice.repository;
+
+import com.example.chatservice.model.ChatMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
+    List<ChatMessage> findByConversationIdOrderBySequenceAsc(Long conversationId);
+
+    List<ChatMessage> findByConversationIdOrderBySequenceDesc(Long conversationId, Pageable pageable);
+
+    List<ChatMessage> findByConversationIdAndSequenceLessThanOrderBySequenceDesc(
+            Long conversationId, long sequence, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(m.sequence), -1) FROM ChatMessage m WHERE m.conversationId = :conversationId")
+    long findMaxSequence(@Param("conversationId") Long conversationId);
+
+    /**
+     * Owner of the conversation a message with the given attachment belongs to. Unindexed, meant
+     * for the one-off upload layout migration only.
+     */
+    @Query(value = "SELECT c.user_id FROM chat_messages m JOIN conversations c ON c.id = m.conversation_id "
+            + "WHERE m.attachment = :fileName "
+            + "OR m.file_info LIKE CONCAT('%\"fileName\":\"', :fileName, '\"%') LIMIT 1", nativeQuery = true)
+    Long findAttachmentOwner(@Param("fileName") String fileName);
+
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.conversationId = :conversationId")
+    int deleteByConversationId(@Param("conversationId") Long conversationId);
+
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.conversationId IN "
+            + "(SELECT c.id FROM Conversation c WHERE c.user.id = :userId)")
+    int deleteByUserId(@Param("userId") Long userId);
+}
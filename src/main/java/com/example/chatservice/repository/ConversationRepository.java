@@ -1,14 +1,56 @@
 package com.example.chatservice.repository;
 
 import com.example.chatservice.model.Conversation;
+import com.example.chatservice.model.dto.ConversationSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
     List<Conversation> findByUserId(Long userId);
     List<Conversation> findByUserIdOrderByUpdatedAtDesc(Long userId);
-}
 
+    @Query("SELECT new com.example.chatservice.model.dto.ConversationSummary("
+            + "c.id, c.title, c.updatedAt, c.messageCount, c.lastMessagePreview) "
+            + "FROM Conversation c WHERE c.user.id = :userId ORDER BY c.updatedAt DESC")
+    Slice<ConversationSummary> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Locks the conversation row so message sequence numbers can be allocated safely.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Conversation c WHERE c.id = :id")
+    Optional<Conversation> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT c.messagesJson FROM Conversation c WHERE c.id = :id")
+    String findLegacyMessagesJson(@Param("id") Long id);
+
+    @Query("SELECT c.id FROM Conversation c WHERE c.messagesJson IS NOT NULL AND c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsWithLegacyMessages(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.messagesJson = NULL, c.messageCount = :messageCount, "
+            + "c.lastMessagePreview = :lastMessagePreview WHERE c.id = :id")
+    int clearLegacyMessages(@Param("id") Long id,
+                            @Param("messageCount") int messageCount,
+                            @Param("lastMessagePreview") String lastMessagePreview);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.messageCount = :messageCount, c.lastMessagePreview = :lastMessagePreview, "
+            + "c.updatedAt = :updatedAt WHERE c.id = :id")
+    int updateMessageCount(@Param("id") Long id,
+                           @Param("messageCount") int messageCount,
+                           @Param("lastMessagePreview") String lastMessagePreview,
+                           @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,25 @@
+package com.example.chatservice.repository;
+
+import com.example.chatservice.model.EmbeddingCacheEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmbeddingCacheRepository extends JpaRepository<EmbeddingCacheEntry, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmbeddingCacheEntry e SET e.lastUsedAt = :lastUsedAt WHERE e.hash IN :hashes")
+    int touch(@Param("hashes") Collection<String> hashes, @Param("lastUsedAt") long lastUsedAt);
+
+    @Query("SELECT e.hash FROM EmbeddingCacheEntry e ORDER BY e.lastUsedAt")
+    List<String> findLeastRecentlyUsed(Pageable pageable);
+}
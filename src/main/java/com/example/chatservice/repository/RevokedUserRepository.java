@@ -0,0 +1,18 @@
+package com.example.chatservice.repository;
+
+import com.example.chatservice.model.RevokedUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface RevokedUserRepository extends JpaRepository<RevokedUser, Long> {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedUser r WHERE r.revokedAt < :before")
+    int deleteRevokedBefore(@Param("before") long before);
+}
@@ -0,0 +1,18 @@
+package com.example.chatservice.repository;
+
+import com.example.chatservice.model.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.referenceCount = b.referenceCount + :delta WHERE b.hash = :hash")
+    int addReferences(@Param("hash") String hash, @Param("delta") long delta);
+}
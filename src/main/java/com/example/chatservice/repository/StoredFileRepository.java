@@ -0,0 +1,27 @@
+package com.example.chatservice.repository;
+
+import com.example.chatservice.model.StoredFile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+
+    Slice<StoredFile> findByOwnerIdOrderByCreatedAtDesc(Long ownerId, Pageable pageable);
+
+    long countByOwnerId(Long ownerId);
+
+    @Query("SELECT COALESCE(SUM(f.size), 0) FROM StoredFile f WHERE f.ownerId = :ownerId")
+    long sumSizeByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredFile f WHERE f.fileName = :fileName AND f.ownerId = :ownerId")
+    int deleteOwned(@Param("fileName") String fileName, @Param("ownerId") Long ownerId);
+}
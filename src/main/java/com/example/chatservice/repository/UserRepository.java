@@ -2,13 +2,18 @@ package com.example.chatservice.repository;
 
 import com.example.chatservice.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    @Query("SELECT u.id FROM User u WHERE u.enabled = false")
+    List<Long> findIdsByEnabledFalse();
 }
 
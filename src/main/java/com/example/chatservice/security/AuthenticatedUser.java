@@ -0,0 +1,34 @@
+package com.example.chatservice.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * The authenticated caller, built from signed JWT claims so no database lookup is needed.
+ * Controllers receive it with {@code @AuthenticationPrincipal AuthenticatedUser user}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class AuthenticatedUser implements Principal {
+    private final Long id;
+    private final String username;
+    private final List<String> roles;
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return roles.stream()
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+    }
+}
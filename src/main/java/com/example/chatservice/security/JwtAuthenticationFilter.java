@@ -1,28 +1,59 @@
 package com.example.chatservice.security;
 
+import com.example.chatservice.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Authenticates requests from the bearer token alone: the principal is built from the token's
+ * signed claims, and revoked users are rejected via {@link RevokedUserRegistry}, so no request
+ * looks up the {@code users} table.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final RevokedUserRegistry revokedUserRegistry;
+    private final UserRepository userRepository;
+    private final Timer validTokens;
+    private final Timer invalidTokens;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(
+            JwtUtil jwtUtil,
+            RevokedUserRegistry revokedUserRegistry,
+            UserRepository userRepository,
+            MeterRegistry meterRegistry) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.revokedUserRegistry = revokedUserRegistry;
+        this.userRepository = userRepository;
+        Gauge.builder("chat.auth.jwt.cache_size", jwtUtil, JwtUtil::cacheSize)
+                .description("Verified tokens cached by JwtUtil")
+                .register(meterRegistry);
+        this.validTokens = Timer.builder("chat.auth.jwt.validation")
+                .description("Time to verify a bearer token (cached tokens skip signature checks)")
+                .tag("outcome", "valid")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.invalidTokens = Timer.builder("chat.auth.jwt.validation")
+                .description("Time to verify a bearer token (cached tokens skip signature checks)")
+                .tag("outcome", "invalid")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
@@ -33,7 +64,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -43,16 +73,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
         
         try {
-            username = jwtUtil.extractUsername(jwt);
+            // Verify the token once and read everything we need from its claims
+            Claims claims;
+            long start = System.nanoTime();
+            try {
+                claims = jwtUtil.validateAndGetClaims(jwt);
+                validTokens.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                invalidTokens.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
             
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            if (claims.getSubject() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                AuthenticatedUser user = jwtUtil.toAuthenticatedUser(claims);
+                if (user == null) {
+                    user = loadLegacyTokenUser(claims.getSubject());
+                }
                 
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                if (user != null && !revokedUserRegistry.isRevoked(user.getId(), claims.getIssuedAt())) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            user,
                             null,
-                            userDetails.getAuthorities()
+                            user.getAuthorities()
                     );
                     
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -66,5 +108,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
-}
 
+    /**
+     * Tokens issued before the user id claim existed still need one lookup; they expire soon.
+     */
+    private AuthenticatedUser loadLegacyTokenUser(String username) {
+        return userRepository.findByUsername(username)
+                .filter(user -> user.isEnabled())
+                .map(user -> new AuthenticatedUser(user.getId(), user.getUsername(), List.of(JwtUtil.DEFAULT_ROLE)))
+                .orElse(null);
+    }
+}
@@ -1,21 +1,35 @@
 package com.example.chatservice.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies JWTs. The signing key and parser are built once; tokens are verified once
+ * and their claims kept in a small LRU cache until the token expires, so repeated requests with
+ * the same token skip signature verification entirely.
+ */
 @Component
 public class JwtUtil {
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String DEFAULT_ROLE = "ROLE_USER";
 
     @Value("${jwt.secret}")
     private String secret;
@@ -23,9 +37,53 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    @Value("${jwt.cache.max-size:10000}")
+    private int cacheMaxSize;
+
+    private Key signingKey;
+    private JwtParser parser;
+    private Map<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Claims> eldest) {
+                return size() > cacheMaxSize;
+            }
+        };
+    }
+
+    /**
+     * Verifies the token's signature and expiry and returns all of its claims.
+     *
+     * @throws JwtException if the token is malformed, forged or expired
+     */
+    public Claims validateAndGetClaims(String token) {
+        long now = System.currentTimeMillis();
+        Claims claims;
+        synchronized (verifiedTokens) {
+            claims = verifiedTokens.get(token);
+        }
+        if (claims != null) {
+            if (claims.getExpiration() != null && claims.getExpiration().getTime() > now) {
+                return claims;
+            }
+            evict(token);
+        }
+
+        // Throws ExpiredJwtException for expired tokens
+        claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            synchronized (verifiedTokens) {
+                verifiedTokens.put(token, claims);
+            }
+        }
+        return claims;
     }
 
     public String extractUsername(String token) {
@@ -37,25 +95,44 @@ public class JwtUtil {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = validateAndGetClaims(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Issues a token carrying the user's id and roles, so requests can be authenticated from the
+     * token alone (see {@link #toAuthenticatedUser}).
+     */
+    public String generateToken(Long userId, String username, List<String> roles) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userId);
+        claims.put(ROLES_CLAIM, roles);
+        return createToken(claims, username);
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public String generateToken(Long userId, String username) {
+        return generateToken(userId, username, List.of(DEFAULT_ROLE));
     }
 
-    public String generateToken(String username) {
-        Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, username);
+    /**
+     * Builds the request principal from verified claims, or returns null if the token predates
+     * the user id claim.
+     */
+    public AuthenticatedUser toAuthenticatedUser(Claims claims) {
+        Object userId = claims.get(USER_ID_CLAIM);
+        if (!(userId instanceof Number)) {
+            return null;
+        }
+
+        List<String> roles = new ArrayList<>();
+        if (claims.get(ROLES_CLAIM) instanceof List<?> roleClaims) {
+            for (Object role : roleClaims) {
+                roles.add(String.valueOf(role));
+            }
+        } else {
+            roles.add(DEFAULT_ROLE);
+        }
+        return new AuthenticatedUser(((Number) userId).longValue(), claims.getSubject(), roles);
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
@@ -64,25 +141,40 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        try {
+            final String username = validateAndGetClaims(token).getSubject();
+            return username != null && username.equals(userDetails.getUsername());
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
     }
     
     public Boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return !isTokenExpired(token);
-        } catch (Exception e) {
+            validateAndGetClaims(token);
+            return true;
+        } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
-}
 
+    /**
+     * Forgets a previously verified token, e.g. on logout.
+     */
+    public void evict(String token) {
+        synchronized (verifiedTokens) {
+            verifiedTokens.remove(token);
+        }
+    }
+
+    public int cacheSize() {
+        synchronized (verifiedTokens) {
+            return verifiedTokens.size();
+        }
+    }
+}
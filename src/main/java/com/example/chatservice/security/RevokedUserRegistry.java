@@ -0,0 +1,76 @@
+package com.example.chatservice.security;
+
+import com.example.chatservice.model.RevokedUser;
+import com.example.chatservice.repository.RevokedUserRepository;
+import com.example.chatservice.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks users whose tokens must no longer be accepted because the account was disabled or
+ * deleted. Tokens issued before the revocation time are rejected; checking is an in-memory
+ * lookup, so authenticating a request still never touches the {@code users} table.
+ * <p>
+ * Revocations are also written to {@code revoked_users} and reloaded before the server accepts
+ * requests, so a restart does not bring a deleted user's tokens back. Rows older than the token
+ * lifetime can no longer match a valid token and are dropped at startup.
+ */
+@Component
+public class RevokedUserRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(RevokedUserRegistry.class);
+
+    private final UserRepository userRepository;
+    private final RevokedUserRepository revokedUserRepository;
+    private final long tokenLifetime;
+    private final Map<Long, Long> revokedAt = new ConcurrentHashMap<>();
+
+    public RevokedUserRegistry(
+            UserRepository userRepository,
+            RevokedUserRepository revokedUserRepository,
+            @Value("${jwt.expiration}") long tokenLifetime) {
+        this.userRepository = userRepository;
+        this.revokedUserRepository = revokedUserRepository;
+        this.tokenLifetime = tokenLifetime;
+    }
+
+    @PostConstruct
+    public void loadRevocations() {
+        long now = System.currentTimeMillis();
+        revokedUserRepository.deleteRevokedBefore(now - tokenLifetime);
+        for (RevokedUser revoked : revokedUserRepository.findAll()) {
+            revokedAt.put(revoked.getUserId(), revoked.getRevokedAt());
+        }
+        // Accounts disabled directly in the database have no revocation record
+        for (Long userId : userRepository.findIdsByEnabledFalse()) {
+            revokedAt.putIfAbsent(userId, now);
+        }
+        if (!revokedAt.isEmpty()) {
+            logger.info("Loaded {} revoked users into the revocation registry", revokedAt.size());
+        }
+    }
+
+    /**
+     * Rejects every token issued to the user up to now.
+     */
+    public void revoke(Long userId) {
+        long now = System.currentTimeMillis();
+        revokedUserRepository.save(new RevokedUser(userId, now));
+        revokedAt.put(userId, now);
+    }
+
+    public boolean isRevoked(Long userId, Date issuedAt) {
+        Long revokedTime = revokedAt.get(userId);
+        if (revokedTime == null) {
+            return false;
+        }
+        // Token timestamps are truncated to seconds, so a token from the revocation second is rejected too
+        return issuedAt == null || issuedAt.getTime() <= revokedTime;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.model.StoredBlob;
+import com.example.chatservice.repository.StoredBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressable storage for upload bytes. Each distinct content is kept once, at
+ * {@code blobs/ab/cd/<sha256>} under the upload directory (the first two bytes of the hash pick
+ * the directories, so no directory grows past a few thousand entries), with a reference count in
+ * {@code stored_blobs}. Adding content that is already stored only bumps the count; removing the
+ * last reference deletes the bytes.
+ * <p>
+ * Reference changes for the same hash are serialized on a striped lock, so a concurrent add and
+ * remove can't lose the file. Blobs written flat into {@code blobs/} by earlier versions are
+ * still found until {@link #relocateFlatBlobs} has moved them.
+ */
+@Service
+public class BlobStore {
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+
+    private static final int LOCK_STRIPES = 64;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final StoredBlobRepository blobRepository;
+    private final Path blobDir;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // Until relocateFlatBlobs has run, a blob may still be at blobs/<sha256>
+    private volatile boolean flatBlobsPending = true;
+
+    public BlobStore(
+            StoredBlobRepository blobRepository,
+            @Value("${file.upload-dir:./uploads}") String uploadDir) throws IOException {
+        this.blobRepository = blobRepository;
+        this.blobDir = Paths.get(uploadDir).toAbsolutePath().normalize().resolve("blobs");
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        Files.createDirectories(blobDir);
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Takes ownership of {@code file}, which holds content of {@code size} bytes hashing to
+     * {@code hash}, encoded as {@code contentEncoding} (null for raw bytes): it becomes the blob,
+     * or is deleted if the blob already exists. Either way the blob gains one reference.
+     *
+     * @return the blob, whose encoding is the existing one when the content was already stored
+     */
+    public StoredBlob addReference(String hash, Path file, long size, String contentEncoding) throws IOException {
+        synchronized (lockFor(hash)) {
+            Optional<StoredBlob> existing = blobRepository.findById(hash);
+            if (existing.isPresent() && Files.exists(pathOf(hash))) {
+                Files.deleteIfExists(file);
+                blobRepository.addReferences(hash, 1);
+                return existing.get();
+            }
+
+            long storedSize = Files.size(file);
+            Path blob = shardedPath(hash);
+            Files.createDirectories(blob.getParent());
+            Files.move(file, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (existing.isPresent()) {
+                // Row survived but the bytes didn't; they have just been restored, possibly encoded differently
+                logger.warn("Blob {} was missing on disk and has been restored", hash);
+                StoredBlob restored = existing.get();
+                restored.setStoredSize(storedSize);
+                restored.setContentEncoding(contentEncoding);
+                restored.setReferenceCount(restored.getReferenceCount() + 1);
+                return blobRepository.save(restored);
+            }
+            return blobRepository.save(new StoredBlob(hash, size, storedSize, contentEncoding, 1, LocalDateTime.now()));
+        }
+    }
+
+    public Optional<StoredBlob> find(String hash) {
+        return blobRepository.findById(hash);
+    }
+
+    /**
+     * Drops one reference, deleting the blob when it was the last.
+     */
+    public void removeReference(String hash) throws IOException {
+        synchronized (lockFor(hash)) {
+            Optional<StoredBlob> blob = blobRepository.findById(hash);
+            if (blob.isEmpty()) {
+                return;
+            }
+            if (blob.get().getReferenceCount() > 1) {
+                blobRepository.addReferences(hash, -1);
+                return;
+            }
+            blobRepository.delete(blob.get());
+            Files.deleteIfExists(pathOf(hash));
+            logger.debug("Deleted blob {} after its last reference was removed", hash);
+        }
+    }
+
+    public Path pathOf(String hash) {
+        Path sharded = shardedPath(hash);
+        if (flatBlobsPending && !Files.exists(sharded)) {
+            Path flat = blobDir.resolve(hash);
+            if (Files.exists(flat)) {
+                return flat;
+            }
+        }
+        return sharded;
+    }
+
+    /**
+     * Moves blobs stored flat in {@code blobs/} into their sharded directories. Each blob is
+     * linked at its new path before the old one is removed, so it stays readable throughout.
+     *
+     * @return the number of blobs moved
+     */
+    public int relocateFlatBlobs() throws IOException {
+        int moved = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(blobDir,
+                entry -> Files.isRegularFile(entry) && HASH.matcher(entry.getFileName().toString()).matches())) {
+            for (Path flat : entries) {
+                String hash = flat.getFileName().toString();
+                synchronized (lockFor(hash)) {
+                    Path sharded = shardedPath(hash);
+                    if (!Files.exists(flat)) {
+                        continue;
+                    }
+                    Files.createDirectories(sharded.getParent());
+                    if (!Files.exists(sharded)) {
+                        try {
+                            Files.createLink(sharded, flat);
+                        } catch (UnsupportedOperationException | IOException e) {
+                            Path temp = sharded.resolveSibling(hash + ".tmp");
+                            Files.copy(flat, temp, StandardCopyOption.REPLACE_EXISTING);
+                            Files.move(temp, sharded, StandardCopyOption.ATOMIC_MOVE);
+                        }
+                    }
+                    Files.delete(flat);
+                    moved++;
+                }
+            }
+        }
+        flatBlobsPending = false;
+        return moved;
+    }
+
+    private Path shardedPath(String hash) {
+        return blobDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+}
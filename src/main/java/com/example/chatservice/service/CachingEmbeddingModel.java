@@ -0,0 +1,284 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.model.EmbeddingCacheEntry;
+import com.example.chatservice.repository.EmbeddingCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link EmbeddingModel} decorator that remembers embeddings by content, so identical text (the
+ * same handbook uploaded again, a repeated question) is embedded only once.
+ * <p>
+ * Entries are keyed by the SHA-256 of the model name and the text. Recently used entries live in
+ * an in-memory LRU; all entries are persisted in the {@code embedding_cache} table, which is
+ * trimmed back to {@code maxEntries} least-recently-used-first. A batch is resolved with one
+ * memory pass, one database query and one model call for whatever is still missing.
+ * <p>
+ * Writes to the table (new entries, last-used times and trimming) run on a single background
+ * thread, so a query embedding never waits on them. When that thread falls behind, further writes
+ * are dropped; the entries are still in memory and are simply embedded again after a restart.
+ * <p>
+ * The cache is best effort: if the table can't be read or written, embeddings still come from
+ * the model.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+    private static final Logger logger = LoggerFactory.getLogger(CachingEmbeddingModel.class);
+    private static final int WRITE_QUEUE_CAPACITY = 256;
+
+    private final EmbeddingModel delegate;
+    private final String modelName;
+    private final EmbeddingCacheRepository repository;
+    private final long maxEntries;
+    private final Map<String, float[]> memory;
+    private final AtomicLong storedEntries = new AtomicLong(-1);
+    private final ThreadPoolExecutor writer;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, String modelName, EmbeddingCacheRepository repository,
+                                 MeterRegistry meterRegistry, int maxMemoryEntries, long maxEntries) {
+        this.delegate = delegate;
+        this.modelName = modelName;
+        this.repository = repository;
+        this.maxEntries = maxEntries;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY), task -> {
+                    Thread thread = new Thread(task, "embedding-cache-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        });
+
+        this.memoryHits = Counter.builder("chat.embedding_cache.requests")
+                .tag("result", "hit").tag("tier", "memory").register(meterRegistry);
+        this.databaseHits = Counter.builder("chat.embedding_cache.requests")
+                .tag("result", "hit").tag("tier", "database").register(meterRegistry);
+        this.misses = Counter.builder("chat.embedding_cache.requests")
+                .tag("result", "miss").tag("tier", "none").register(meterRegistry);
+        Gauge.builder("chat.embedding_cache.memory_size", memory, Map::size)
+                .description("Embeddings held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        EmbeddingOptions options = request.getOptions();
+        if (options != null && options.getModel() != null && !options.getModel().equals(modelName)) {
+            // Different model than the one the cache is keyed by
+            return delegate.call(request);
+        }
+
+        List<float[]> vectors = embed(request.getInstructions());
+        List<Embedding> embeddings = new ArrayList<>(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            embeddings.add(new Embedding(vectors.get(i), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return embed(List.of(text)).get(0);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent());
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<String> hashes = new ArrayList<>(texts.size());
+        Map<String, float[]> found = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String text : texts) {
+            String hash = hash(text);
+            hashes.add(hash);
+            float[] vector = memory.get(hash);
+            if (vector != null) {
+                found.put(hash, vector);
+                memoryHits.increment();
+            } else {
+                missing.add(hash);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            loadStored(missing, found);
+        }
+
+        if (!missing.isEmpty()) {
+            // One model call for every distinct text still missing
+            Map<String, String> textsByHash = new LinkedHashMap<>();
+            for (int i = 0; i < texts.size(); i++) {
+                if (missing.contains(hashes.get(i))) {
+                    textsByHash.putIfAbsent(hashes.get(i), texts.get(i));
+                }
+            }
+            List<float[]> computed = delegate.embed(new ArrayList<>(textsByHash.values()));
+            List<EmbeddingCacheEntry> entries = new ArrayList<>(computed.size());
+            long now = System.currentTimeMillis();
+            int i = 0;
+            for (String hash : textsByHash.keySet()) {
+                float[] vector = computed.get(i++);
+                found.put(hash, vector);
+                memory.put(hash, vector);
+                entries.add(new EmbeddingCacheEntry(hash, vector, now));
+            }
+            misses.increment(entries.size());
+            write(() -> store(entries));
+        }
+
+        List<float[]> result = new ArrayList<>(texts.size());
+        for (String hash : hashes) {
+            result.add(found.get(hash));
+        }
+        return result;
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    /**
+     * Moves every hash found in the table from {@code missing} into {@code found}.
+     */
+    private void loadStored(Set<String> missing, Map<String, float[]> found) {
+        try {
+            List<EmbeddingCacheEntry> stored = repository.findAllById(missing);
+            if (stored.isEmpty()) {
+                return;
+            }
+            List<String> storedHashes = new ArrayList<>(stored.size());
+            for (EmbeddingCacheEntry entry : stored) {
+                float[] vector = entry.toVector();
+                found.put(entry.getHash(), vector);
+                memory.put(entry.getHash(), vector);
+                missing.remove(entry.getHash());
+                storedHashes.add(entry.getHash());
+            }
+            databaseHits.increment(stored.size());
+            long now = System.currentTimeMillis();
+            write(() -> repository.touch(storedHashes, now));
+        } catch (Exception e) {
+            logger.warn("Could not read the embedding cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hands a table write to the background writer, dropping it if the writer is backed up.
+     */
+    private void write(Runnable task) {
+        try {
+            writer.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.warn("Could not write the embedding cache: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Embedding cache writer is backed up, not persisting this batch");
+        }
+    }
+
+    private void store(List<EmbeddingCacheEntry> entries) {
+        int inserted;
+        try {
+            repository.saveAll(entries);
+            inserted = entries.size();
+        } catch (DataIntegrityViolationException e) {
+            // Another caller stored some of the same texts concurrently; keep the rest
+            inserted = 0;
+            for (EmbeddingCacheEntry entry : entries) {
+                try {
+                    repository.save(entry);
+                    inserted++;
+                } catch (DataIntegrityViolationException duplicate) {
+                    // Already cached
+                }
+            }
+        }
+        trim(inserted);
+    }
+
+    /**
+     * Deletes the least recently used entries once the table grows past {@code maxEntries}, down
+     * to 90% of it so trimming doesn't run on every insert.
+     */
+    private void trim(int inserted) {
+        if (storedEntries.get() < 0) {
+            storedEntries.set(repository.count());
+        } else {
+            storedEntries.addAndGet(inserted);
+        }
+        long excess = storedEntries.get() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+
+        synchronized (storedEntries) {
+            long count = repository.count();
+            long toDelete = count - (long) (maxEntries * 0.9);
+            while (toDelete > 0) {
+                List<String> oldest = repository.findLeastRecentlyUsed(PageRequest.of(0, (int) Math.min(toDelete, 1000)));
+                if (oldest.isEmpty()) {
+                    break;
+                }
+                repository.deleteAllByIdInBatch(oldest);
+                toDelete -= oldest.size();
+            }
+            storedEntries.set(repository.count());
+            logger.debug("Trimmed embedding cache from {} to {} entries", count, storedEntries.get());
+        }
+    }
+
+    private String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.model.FileInfo;
+import com.example.chatservice.model.dto.UploadStartRequest;
+import com.example.chatservice.model.dto.UploadStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Resumable uploads for files too large (or connections too flaky) for a single multipart
+ * request. The client starts an upload with the final size, sends chunks at arbitrary offsets,
+ * in any order and concurrently, then completes it. Each chunk is transferred from the request
+ * stream straight into the partial file's {@link FileChannel} at its offset; nothing is buffered
+ * beyond the transfer buffer.
+ * <p>
+ * Completing checks that every byte was received and, when a SHA-256 was given, that it matches,
+ * before the file is handed to {@link FileStorageService} like any other upload. The declared
+ * size is reserved against the user's quota from start until the upload is stored or discarded.
+ * Partial files live in the staging directory under the upload directory; sessions idle for
+ * longer than {@code chat.upload.session-ttl} are discarded by a periodic sweep.
+ * <p>
+ * Each partial file has a {@code .upload} metadata file beside it, rewritten after every chunk
+ * once the chunk's bytes are on disk, so uploads can be resumed after a restart. On startup,
+ * sessions are restored from their metadata and anything else left in the staging directory
+ * is deleted.
+ */
+@Service
+public class ChunkedUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final class Session {
+        final String id;
+        final Long ownerId;
+        final String fileName;
+        final String contentType;
+        final long size;
+        final String sha256;
+        final Path path;
+        // Reopened if storing the completed upload fails
+        volatile FileChannel channel;
+        // Received ranges, start -> end (exclusive), kept merged
+        final TreeMap<Long, Long> received = new TreeMap<>();
+        volatile long lastActivity = System.currentTimeMillis();
+        // Chunk writes in progress, and whether completing or discarding has taken the session
+        final AtomicInteger writes = new AtomicInteger();
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        Session(String id, Long ownerId, String fileName, String contentType, long size, String sha256,
+                Path path, FileChannel channel) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.size = size;
+            this.sha256 = sha256;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        /**
+         * Takes the session for completing or discarding. Fails while it is already taken or a
+         * chunk is being written; a chunk write that starts afterwards sees the claim and backs off.
+         */
+        boolean claim() {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            if (writes.get() > 0) {
+                claimed.set(false);
+                return false;
+            }
+            return true;
+        }
+
+        synchronized void markReceived(long start, long end) {
+            Map.Entry<Long, Long> before = received.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> next;
+            while ((next = received.ceilingEntry(start)) != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                received.remove(next.getKey());
+            }
+            received.put(start, end);
+        }
+
+        synchronized long bytesReceived() {
+            long total = 0;
+            for (Map.Entry<Long, Long> range : received.entrySet()) {
+                total += range.getValue() - range.getKey();
+            }
+            return total;
+        }
+
+        synchronized List<long[]> ranges() {
+            List<long[]> ranges = new ArrayList<>(received.size());
+            received.forEach((start, end) -> ranges.add(new long[]{start, end}));
+            return ranges;
+        }
+    }
+
+    // Persisted form of a session, in <uploadId>.upload next to the partial file
+    private record SessionMetadata(String id, Long ownerId, String fileName, String contentType, long size,
+                                   String sha256, List<long[]> received, long lastActivity) {
+    }
+
+    private static final String METADATA_SUFFIX = ".upload";
+
+    private final FileStorageService fileStorageService;
+    private final Path partialDir;
+    private final long maxFileSize;
+    private final int maxChunkSize;
+    private final long sessionTtlMillis;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService expiry;
+    private final Timer chunkTimer;
+    private final DistributionSummary chunkBytes;
+
+    public ChunkedUploadService(
+            FileStorageService fileStorageService,
+            @Value("${file.upload-dir:./uploads}") String uploadDir,
+            @Value("${chat.upload.max-file-size:5GB}") DataSize maxFileSize,
+            @Value("${chat.upload.max-chunk-size:16MB}") DataSize maxChunkSize,
+            @Value("${chat.upload.session-ttl:24h}") Duration sessionTtl,
+            MeterRegistry meterRegistry) throws IOException {
+        this.fileStorageService = fileStorageService;
+        this.partialDir = Paths.get(uploadDir).toAbsolutePath().normalize().resolve(FileStorageService.STAGING_DIR);
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxChunkSize = (int) maxChunkSize.toBytes();
+        this.sessionTtlMillis = sessionTtl.toMillis();
+        Files.createDirectories(partialDir);
+        restoreSessions();
+
+        this.chunkTimer = Timer.builder("chat.files.upload.chunk")
+                .description("Time to receive one chunk of a chunked upload")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.chunkBytes = DistributionSummary.builder("chat.files.upload.chunk_bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("chat.files.upload.sessions", sessions, Map::size)
+                .description("Chunked uploads in progress")
+                .register(meterRegistry);
+
+        // Sweep often enough that an idle upload outlives its TTL by at most an hour
+        long sweepMillis = Math.max(1_000, Math.min(sessionTtlMillis, TimeUnit.HOURS.toMillis(1)));
+        this.expiry = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chunked-upload-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expiry.scheduleWithFixedDelay(this::expireIdleSessions, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public UploadStatus start(UploadStartRequest request, Long ownerId) throws IOException {
+        if (request.getFileName() == null || request.getFileName().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fileName is required");
+        }
+        if (request.getSize() <= 0 || request.getSize() > maxFileSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "size must be between 1 and " + maxFileSize + " bytes");
+        }
+        try {
+            fileStorageService.validateFileName(request.getFileName());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        // Held until the upload is stored or discarded, so open sessions can't add up past the quota
+        fileStorageService.reserveQuota(ownerId, request.getSize());
+
+        String id = UUID.randomUUID().toString();
+        Path path = partialDir.resolve(id);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            fileStorageService.releaseQuota(ownerId, request.getSize());
+            throw e;
+        }
+        Session session = new Session(id, ownerId, request.getFileName(), request.getContentType(),
+                request.getSize(), request.getSha256(), path, channel);
+        try {
+            persist(session);
+        } catch (IOException e) {
+            fileStorageService.releaseQuota(ownerId, request.getSize());
+            discard(session);
+            throw e;
+        }
+        sessions.put(id, session);
+        logger.debug("Started chunked upload {} of {} ({} bytes)", id, request.getFileName(), request.getSize());
+        return status(session);
+    }
+
+    /**
+     * Writes one chunk at {@code offset}. Chunks may overlap earlier ones (a retried chunk simply
+     * overwrites the same bytes) and may arrive concurrently.
+     */
+    public UploadStatus writeChunk(String uploadId, Long ownerId, long offset, long length, InputStream body)
+            throws IOException {
+        Session session = session(uploadId, ownerId);
+        if (length <= 0 || length > maxChunkSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Chunk length must be between 1 and " + maxChunkSize + " bytes");
+        }
+        if (offset < 0 || offset + length > session.size) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk lies outside the file");
+        }
+
+        session.writes.incrementAndGet();
+        try {
+            if (session.claimed.get()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is being completed");
+            }
+
+            long start = System.nanoTime();
+            ReadableByteChannel source = Channels.newChannel(body);
+            long written = 0;
+            while (written < length) {
+                long transferred = session.channel.transferFrom(source, offset + written, length - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            // Whatever did arrive is on disk and counted, so the client only resends the rest
+            session.lastActivity = System.currentTimeMillis();
+            if (written > 0) {
+                session.channel.force(false);
+                session.markReceived(offset, offset + written);
+                persist(session);
+            }
+            chunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            chunkBytes.record(written);
+            if (written < length) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Chunk ended after " + written + " of " + length + " bytes");
+            }
+            return status(session);
+        } finally {
+            session.writes.decrementAndGet();
+        }
+    }
+
+    public UploadStatus getStatus(String uploadId, Long ownerId) {
+        return status(session(uploadId, ownerId));
+    }
+
+    /**
+     * Verifies the upload and moves it into the upload directory. The session is only dropped
+     * once the file is stored; if storing fails it stays open, so the client can retry.
+     *
+     * @param sha256 expected hex digest, overriding the one given at start; may be null
+     */
+    public FileInfo complete(String uploadId, Long ownerId, String sha256) throws IOException {
+        Session session = session(uploadId, ownerId);
+        if (!session.claim()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Upload is already being completed or still receiving chunks");
+        }
+        long received = session.bytesReceived();
+        if (received != session.size) {
+            session.claimed.set(false);
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Upload incomplete: " + received + " of " + session.size + " bytes received");
+        }
+
+        // The digest doubles as the blob key in storage
+        String actual;
+        try {
+            actual = digest(session.channel, session.size);
+        } catch (IOException e) {
+            session.claimed.set(false);
+            throw e;
+        }
+        String expected = sha256 != null ? sha256 : session.sha256;
+        if (expected != null) {
+            if (!actual.equalsIgnoreCase(expected)) {
+                // Can't tell which chunk is bad, so the upload has to start over
+                discard(session);
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Checksum mismatch: expected " + expected + " but got " + actual);
+            }
+        }
+
+        FileInfo fileInfo;
+        try {
+            session.channel.force(true);
+            session.channel.close();
+            fileInfo = fileStorageService.storeCompletedUpload(session.path, actual, session.fileName,
+                    session.contentType, ownerId, session.size);
+        } catch (IOException | RuntimeException e) {
+            reopen(session);
+            throw e;
+        }
+        sessions.remove(uploadId);
+        Files.deleteIfExists(metadataPath(session.id));
+        logger.info("Completed chunked upload {} as {} ({} bytes)", uploadId, fileInfo.getFileName(), session.size);
+        return fileInfo;
+    }
+
+    public void abort(String uploadId, Long ownerId) {
+        Session session = session(uploadId, ownerId);
+        if (!session.claim()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Upload is being completed or still receiving chunks");
+        }
+        discard(session);
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        expiry.shutdownNow();
+        sessions.values().forEach(session -> {
+            try {
+                session.channel.close();
+            } catch (IOException e) {
+                // Shutting down anyway
+            }
+        });
+    }
+
+    private Session session(String uploadId, Long ownerId) {
+        Session session = sessions.get(uploadId);
+        if (session == null || !session.ownerId.equals(ownerId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found");
+        }
+        return session;
+    }
+
+    private UploadStatus status(Session session) {
+        return new UploadStatus(session.id, session.fileName, session.size,
+                session.bytesReceived(), session.ranges(), maxChunkSize);
+    }
+
+    private void expireIdleSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTtlMillis;
+        for (Session session : sessions.values()) {
+            // A session with a chunk write in flight isn't idle, whatever its last activity says
+            if (session.lastActivity < cutoff && session.claim()) {
+                logger.info("Discarding idle chunked upload {}", session.id);
+                discard(session);
+            }
+        }
+    }
+
+    private void discard(Session session) {
+        // Only the call that unregisters the session gives its reservation back
+        if (sessions.remove(session.id, session)) {
+            fileStorageService.releaseQuota(session.ownerId, session.size);
+        }
+        try {
+            session.channel.close();
+            Files.deleteIfExists(session.path);
+            Files.deleteIfExists(metadataPath(session.id));
+        } catch (IOException e) {
+            logger.warn("Could not delete partial upload {}", session.path, e);
+        }
+    }
+
+    /**
+     * Hands a session back to the client after storing its completed file failed, as long as the
+     * partial file is still there; otherwise the upload has to start over.
+     */
+    private void reopen(Session session) {
+        try {
+            if (Files.isRegularFile(session.path)) {
+                session.channel = FileChannel.open(session.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                session.claimed.set(false);
+                return;
+            }
+        } catch (IOException e) {
+            logger.warn("Could not reopen partial upload {}", session.path, e);
+        }
+        discard(session);
+    }
+
+    private Path metadataPath(String uploadId) {
+        return partialDir.resolve(uploadId + METADATA_SUFFIX);
+    }
+
+    /**
+     * Rewrites the session's metadata file. Serialized per session so a slower writer never
+     * replaces newer ranges with older ones.
+     */
+    private void persist(Session session) throws IOException {
+        synchronized (session) {
+            SessionMetadata metadata = new SessionMetadata(session.id, session.ownerId, session.fileName,
+                    session.contentType, session.size, session.sha256, session.ranges(), session.lastActivity);
+            Path target = metadataPath(session.id);
+            Path temporary = partialDir.resolve(session.id + METADATA_SUFFIX + ".tmp");
+            Files.write(temporary, objectMapper.writeValueAsBytes(metadata));
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Reopens the uploads that were in progress at shutdown and deletes everything else in the
+     * staging directory. Runs while the context starts, before any upload can be in flight.
+     */
+    private void restoreSessions() throws IOException {
+        long cutoff = System.currentTimeMillis() - sessionTtlMillis;
+        Set<Path> keep = new HashSet<>();
+        try (Stream<Path> files = Files.list(partialDir)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(METADATA_SUFFIX)).toList()) {
+                try {
+                    SessionMetadata metadata = objectMapper.readValue(file.toFile(), SessionMetadata.class);
+                    Path path = partialDir.resolve(metadata.id());
+                    if (metadata.lastActivity() < cutoff || !file.equals(metadataPath(metadata.id()))
+                            || !Files.isRegularFile(path)) {
+                        continue;
+                    }
+                    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    Session session = new Session(metadata.id(), metadata.ownerId(), metadata.fileName(),
+                            metadata.contentType(), metadata.size(), metadata.sha256(), path, channel);
+                    for (long[] range : metadata.received()) {
+                        session.markReceived(range[0], range[1]);
+                    }
+                    session.lastActivity = metadata.lastActivity();
+                    sessions.put(session.id, session);
+                    fileStorageService.restoreReservation(session.ownerId, session.size);
+                    keep.add(file);
+                    keep.add(path);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Discarding unreadable chunked upload metadata {}", file, e);
+                }
+            }
+        }
+
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(partialDir)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                if (!keep.contains(file)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        }
+        if (!sessions.isEmpty() || deleted > 0) {
+            logger.info("Restored {} chunked uploads, deleted {} orphaned staging files", sessions.size(), deleted);
+        }
+    }
+
+    private static String digest(FileChannel channel, long size) throws IOException {
+        MessageDigest digest = BlobStore.newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        long position = 0;
+        while (position < size) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return BlobStore.toHex(digest);
+    }
+}
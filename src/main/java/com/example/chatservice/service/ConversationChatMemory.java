@@ -0,0 +1,131 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.model.ChatResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ChatMemory} keyed by conversation id, with a fixed window of recent messages per
+ * conversation held in an LRU cache of bounded size.
+ * <p>
+ * The message table is the system of record: turns are persisted by
+ * {@link ConversationMessageService}, so {@link #add} only updates the cached window. On a cache
+ * miss the window is reloaded from the latest stored messages, which keeps memory use flat no
+ * matter how many conversations are active or how long they get.
+ */
+@Component
+public class ConversationChatMemory implements ChatMemory {
+    private static final Logger logger = LoggerFactory.getLogger(ConversationChatMemory.class);
+
+    private final ConversationMessageService conversationMessageService;
+    private final int windowSize;
+    private final Map<String, Deque<Message>> cache;
+
+    public ConversationChatMemory(
+            ConversationMessageService conversationMessageService,
+            @Value("${chat.memory.window:20}") int windowSize,
+            @Value("${chat.memory.max-conversations:10000}") int maxConversations,
+            MeterRegistry meterRegistry) {
+        this.conversationMessageService = conversationMessageService;
+        this.windowSize = windowSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Deque<Message>> eldest) {
+                return size() > maxConversations;
+            }
+        };
+        Gauge.builder("chat.memory.conversations", this, ConversationChatMemory::size)
+                .description("Conversation windows held in memory")
+                .register(meterRegistry);
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        Deque<Message> window = window(conversationId);
+        synchronized (window) {
+            for (Message message : messages) {
+                window.addLast(message);
+                if (window.size() > windowSize) {
+                    window.removeFirst();
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        Deque<Message> window = window(conversationId);
+        synchronized (window) {
+            List<Message> messages = new ArrayList<>(window);
+            int from = Math.max(0, messages.size() - lastN);
+            return messages.subList(from, messages.size());
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        synchronized (cache) {
+            cache.remove(conversationId);
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private Deque<Message> window(String conversationId) {
+        synchronized (cache) {
+            Deque<Message> window = cache.get(conversationId);
+            if (window != null) {
+                return window;
+            }
+        }
+
+        // Load outside the cache lock so a slow query doesn't block other conversations
+        Deque<Message> loaded = load(conversationId);
+        synchronized (cache) {
+            return cache.computeIfAbsent(conversationId, id -> loaded);
+        }
+    }
+
+    private Deque<Message> load(String conversationId) {
+        Deque<Message> window = new ArrayDeque<>(windowSize + 1);
+        Long id;
+        try {
+            id = Long.valueOf(conversationId);
+        } catch (NumberFormatException e) {
+            // Not one of our conversations (e.g. the advisor's default id); nothing stored
+            return window;
+        }
+
+        List<ChatResponse> recent = conversationMessageService.getMessagesBefore(id, null, windowSize).getMessages();
+        for (ChatResponse response : recent) {
+            window.addLast("user".equals(response.getSender())
+                    ? new UserMessage(response.getMessage())
+                    : new AssistantMessage(response.getMessage()));
+        }
+        logger.debug("Loaded {} messages into chat memory for conversation {}", window.size(), conversationId);
+        return window;
+    }
+}
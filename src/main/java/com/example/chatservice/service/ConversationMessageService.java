@@ -0,0 +1,186 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.model.ChatMessage;
+import com.example.chatservice.model.ChatResponse;
+import com.example.chatservice.model.Conversation;
+import com.example.chatservice.model.dto.MessagePage;
+import com.example.chatservice.repository.ChatMessageRepository;
+import com.example.chatservice.repository.ConversationRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only message store. Each message is a row in {@code chat_messages}, so adding a turn
+ * costs a single insert no matter how long the conversation is.
+ * <p>
+ * Conversations created before the message table existed keep their history in the legacy
+ * {@code messages} JSON column. They are migrated on first access here, and in the background
+ * by {@link LegacyMessageMigrator}.
+ */
+@Service
+public class ConversationMessageService {
+    private static final Logger logger = LoggerFactory.getLogger(ConversationMessageService.class);
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ConversationRepository conversationRepository;
+    private final ObjectMapper objectMapper;
+    private final MessageCodec messageCodec;
+
+    public ConversationMessageService(
+            ChatMessageRepository chatMessageRepository,
+            ConversationRepository conversationRepository,
+            ObjectMapper objectMapper,
+            MessageCodec messageCodec) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.conversationRepository = conversationRepository;
+        this.objectMapper = objectMapper;
+        this.messageCodec = messageCodec;
+    }
+
+    /**
+     * Appends messages to the end of the conversation, in order, within one transaction.
+     */
+    @Transactional
+    public List<ChatMessage> appendMessages(Long conversationId, List<ChatResponse> messages) {
+        lockConversation(conversationId);
+        migrateLegacyMessagesLocked(conversationId);
+
+        long sequence = chatMessageRepository.findMaxSequence(conversationId) + 1;
+        List<ChatMessage> rows = new ArrayList<>(messages.size());
+        for (ChatResponse message : messages) {
+            rows.add(toRow(conversationId, sequence++, message));
+        }
+        List<ChatMessage> saved = chatMessageRepository.saveAll(rows);
+        String preview = messages.isEmpty() ? null : Conversation.preview(messages.get(messages.size() - 1).getMessage());
+        conversationRepository.updateMessageCount(conversationId, (int) sequence, preview, LocalDateTime.now());
+        return saved;
+    }
+
+    /**
+     * Returns every message of the conversation in order.
+     */
+    @Transactional
+    public List<ChatResponse> getMessages(Long conversationId) {
+        if (conversationRepository.findLegacyMessagesJson(conversationId) != null) {
+            migrateLegacyMessages(conversationId);
+        }
+
+        List<ChatMessage> rows = chatMessageRepository.findByConversationIdOrderBySequenceAsc(conversationId);
+        List<ChatResponse> messages = new ArrayList<>(rows.size());
+        for (ChatMessage row : rows) {
+            messages.add(toResponse(row));
+        }
+        return messages;
+    }
+
+    /**
+     * Returns up to {@code limit} messages preceding sequence number {@code before} (or the latest
+     * messages when {@code before} is null), oldest first. Only the requested window is read.
+     */
+    @Transactional
+    public MessagePage getMessagesBefore(Long conversationId, Long before, int limit) {
+        if (conversationRepository.findLegacyMessagesJson(conversationId) != null) {
+            migrateLegacyMessages(conversationId);
+        }
+
+        // Fetch one extra row to find out whether there is anything older
+        PageRequest window = PageRequest.of(0, limit + 1);
+        List<ChatMessage> rows = before == null
+                ? chatMessageRepository.findByConversationIdOrderBySequenceDesc(conversationId, window)
+                : chatMessageRepository.findByConversationIdAndSequenceLessThanOrderBySequenceDesc(
+                        conversationId, before, window);
+
+        boolean hasMore = rows.size() > limit;
+        int count = Math.min(rows.size(), limit);
+        List<ChatResponse> messages = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            messages.add(toResponse(rows.get(i)));
+        }
+
+        Long nextBefore = hasMore ? rows.get(count - 1).getSequence() : null;
+        return MessagePage.of(messages, nextBefore, hasMore);
+    }
+
+    /**
+     * Moves the legacy JSON history of a conversation into the message table.
+     *
+     * @return the number of messages migrated (0 if there was nothing to migrate)
+     */
+    @Transactional
+    public int migrateLegacyMessages(Long conversationId) {
+        lockConversation(conversationId);
+        return migrateLegacyMessagesLocked(conversationId);
+    }
+
+    /**
+     * Deletes the conversation together with all of its messages.
+     */
+    @Transactional
+    public void deleteConversation(Long conversationId) {
+        chatMessageRepository.deleteByConversationId(conversationId);
+        conversationRepository.deleteById(conversationId);
+    }
+
+    private ChatMessage toRow(Long conversationId, long sequence, ChatResponse message) {
+        return ChatMessage.of(conversationId, sequence, message,
+                messageCodec.encode(message.getMessage(), message.getFileInfo()));
+    }
+
+    private ChatResponse toResponse(ChatMessage row) {
+        if (row.getBody() == null) {
+            // Written before message bodies were encoded
+            return row.toChatResponse();
+        }
+        MessageCodec.Content content = messageCodec.decode(row.getBody());
+        return row.toChatResponse(content.message(), content.fileInfo());
+    }
+
+    private void lockConversation(Long conversationId) {
+        conversationRepository.findByIdForUpdate(conversationId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Conversation not found"));
+    }
+
+    private int migrateLegacyMessagesLocked(Long conversationId) {
+        // Read the column directly: a managed Conversation may hold a stale copy
+        String messagesJson = conversationRepository.findLegacyMessagesJson(conversationId);
+        if (messagesJson == null) {
+            return 0;
+        }
+
+        List<ChatResponse> legacyMessages = new ArrayList<>();
+        try {
+            if (!messagesJson.isEmpty()) {
+                legacyMessages = objectMapper.readValue(messagesJson, new TypeReference<List<ChatResponse>>() {});
+            }
+        } catch (JsonProcessingException e) {
+            // Leave messages_json as it is so the history can be repaired and migrated later;
+            // clearing it would lose the whole conversation
+            logger.error("Error deserializing legacy messages of conversation {}", conversationId, e);
+            throw new IllegalStateException("Unreadable legacy messages in conversation " + conversationId, e);
+        }
+
+        List<ChatMessage> rows = new ArrayList<>(legacyMessages.size());
+        for (int i = 0; i < legacyMessages.size(); i++) {
+            rows.add(toRow(conversationId, i, legacyMessages.get(i)));
+        }
+        // Written in the same transaction as the clear below, so the blob only goes away with them
+        chatMessageRepository.saveAllAndFlush(rows);
+        String preview = legacyMessages.isEmpty() ? null : Conversation.preview(legacyMessages.get(legacyMessages.size() - 1).getMessage());
+        conversationRepository.clearLegacyMessages(conversationId, rows.size(), preview);
+
+        logger.info("Migrated {} legacy messages of conversation {}", rows.size(), conversationId);
+        return rows.size();
+    }
+}
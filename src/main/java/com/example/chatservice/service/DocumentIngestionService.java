@@ -0,0 +1,255 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.model.FileInfo;
+import com.example.chatservice.model.dto.IngestionStatus;
+import com.example.chatservice.model.dto.IngestionStatus.State;
+import com.example.chatservice.vectorstore.FileVectorStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.TextReader;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
+import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes uploaded documents searchable for RAG. Uploads are only queued here; a bounded pool of
+ * workers extracts the text, splits it into chunks and embeds them in batches into the shared
+ * {@link VectorStore}. Every chunk is tagged with the uploader's id ({@link #OWNER_METADATA}) so
+ * retrieval can be restricted to a user's own documents with {@link #ownerFilter}.
+ * <p>
+ * Progress is tracked in memory for the most recent uploads. After a restart, a document whose
+ * chunks are already in the store reports as {@code READY}.
+ */
+@Service
+public class DocumentIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentIngestionService.class);
+
+    public static final String OWNER_METADATA = "ownerId";
+    public static final String SOURCE_METADATA = "source";
+    private static final Set<String> TEXT_EXTENSIONS = Set.of("txt", "csv", "md");
+
+    private final VectorStore vectorStore;
+    private final FileVectorStore fileVectorStore;
+    private final FileStorageService fileStorageService;
+    private final int batchSize;
+    private final ThreadPoolExecutor workers;
+
+    private final Map<String, IngestionStatus> statuses;
+    private final Map<Long, Boolean> usersWithDocuments = new ConcurrentHashMap<>();
+    // Documents deleted while their ingestion was still running
+    private final Set<String> removedWhileIngesting = ConcurrentHashMap.newKeySet();
+
+    public DocumentIngestionService(
+            VectorStore vectorStore,
+            FileVectorStore fileVectorStore,
+            FileStorageService fileStorageService,
+            @Value("${chat.ingestion.workers:2}") int workerCount,
+            @Value("${chat.ingestion.queue-capacity:100}") int queueCapacity,
+            @Value("${chat.ingestion.embed-batch-size:32}") int batchSize,
+            @Value("${chat.ingestion.max-tracked:10000}") int maxTracked,
+            MeterRegistry meterRegistry) {
+        this.vectorStore = vectorStore;
+        this.fileVectorStore = fileVectorStore;
+        this.fileStorageService = fileStorageService;
+        this.batchSize = batchSize;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "document-ingestion-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.statuses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IngestionStatus> eldest) {
+                return size() > maxTracked;
+            }
+        });
+
+        Gauge.builder("chat.ingestion.queue_depth", workers, executor -> executor.getQueue().size())
+                .description("Documents waiting for an ingestion worker")
+                .register(meterRegistry);
+        Gauge.builder("chat.ingestion.active", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Documents being ingested")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the file type can be ingested at all.
+     */
+    public boolean supports(FileInfo fileInfo) {
+        return "document".equals(fileInfo.getFileType());
+    }
+
+    /**
+     * Queues a stored upload for ingestion and returns immediately. When the queue is full the
+     * document is marked {@code FAILED} rather than making the upload wait.
+     */
+    public IngestionStatus submit(FileInfo fileInfo, Long ownerId) {
+        IngestionStatus status = new IngestionStatus(fileInfo.getFileName(), ownerId, State.QUEUED);
+        statuses.put(fileInfo.getFileName(), status);
+        try {
+            workers.execute(() -> ingest(fileInfo, status));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Ingestion queue full, not ingesting {}", fileInfo.getFileName());
+            update(status, State.FAILED, "Ingestion queue is full, please upload the document again later");
+        }
+        return status;
+    }
+
+    /**
+     * Ingestion progress of one of the user's uploads, or null if unknown.
+     */
+    public IngestionStatus getStatus(String fileName, Long ownerId) {
+        IngestionStatus status = statuses.get(fileName);
+        if (status != null) {
+            return ownerId.equals(status.getOwnerId()) ? status : null;
+        }
+        if (fileVectorStore.containsMetadata(Map.of(SOURCE_METADATA, fileName, OWNER_METADATA, ownerId))) {
+            IngestionStatus ready = new IngestionStatus(fileName, ownerId, State.READY);
+            statuses.put(fileName, ready);
+            return ready;
+        }
+        return null;
+    }
+
+    /**
+     * Whether the user has any ingested document chunks, i.e. whether retrieval is worth running.
+     */
+    public boolean hasDocuments(Long ownerId) {
+        Boolean known = usersWithDocuments.get(ownerId);
+        if (known != null) {
+            return known;
+        }
+        // Scanned outside the map: computeIfAbsent would hold up other users' lookups meanwhile.
+        // An ingestion finishing in between has already put true, which wins
+        boolean found = fileVectorStore.containsMetadata(OWNER_METADATA, ownerId);
+        Boolean previous = usersWithDocuments.putIfAbsent(ownerId, found);
+        return previous != null ? previous : found;
+    }
+
+    /**
+     * Removes a deleted upload's chunks from the vector store, so retrieval stops returning its
+     * content. An ingestion still running for it drops what it added once it is done.
+     */
+    public void remove(String fileName, Long ownerId) {
+        IngestionStatus status = statuses.remove(fileName);
+        if (status != null && status.getState() != State.READY && status.getState() != State.FAILED) {
+            removedWhileIngesting.add(fileName);
+        }
+        deleteChunks(fileName, ownerId);
+    }
+
+    /**
+     * Filter expression restricting retrieval to one user's documents.
+     */
+    public static String ownerFilter(Long ownerId) {
+        return OWNER_METADATA + " == " + ownerId;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    void ingest(FileInfo fileInfo, IngestionStatus status) {
+        String fileName = fileInfo.getFileName();
+        try {
+            long start = System.currentTimeMillis();
+            update(status, State.EXTRACTING, null);
+            List<Document> chunks = new TokenTextSplitter().split(read(fileInfo));
+            for (Document chunk : chunks) {
+                chunk.getMetadata().put(SOURCE_METADATA, fileName);
+                chunk.getMetadata().put(OWNER_METADATA, status.getOwnerId());
+            }
+
+            status.setTotalChunks(chunks.size());
+            update(status, State.EMBEDDING, null);
+            for (int from = 0; from < chunks.size(); from += batchSize) {
+                List<Document> batch = chunks.subList(from, Math.min(from + batchSize, chunks.size()));
+                vectorStore.add(batch);
+                status.setEmbeddedChunks(status.getEmbeddedChunks() + batch.size());
+                status.setUpdatedAt(LocalDateTime.now());
+            }
+
+            if (removedWhileIngesting.remove(fileName)) {
+                deleteChunks(fileName, status.getOwnerId());
+                logger.info("Discarded ingestion of {}, which was deleted meanwhile", fileName);
+                return;
+            }
+            if (!chunks.isEmpty()) {
+                usersWithDocuments.put(status.getOwnerId(), true);
+            }
+            update(status, State.READY, null);
+            logger.info("Ingested {} ({} chunks) in {} ms", fileName, chunks.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            if (removedWhileIngesting.remove(fileName)) {
+                // Most likely failed because the file is gone; drop any chunks already added
+                deleteChunks(fileName, status.getOwnerId());
+                return;
+            }
+            logger.error("Failed to ingest {}", fileName, e);
+            update(status, State.FAILED, "Could not read the document");
+        }
+    }
+
+    private void deleteChunks(String fileName, Long ownerId) {
+        FilterExpressionBuilder filter = new FilterExpressionBuilder();
+        Filter.Expression expression = filter.and(
+                filter.eq(SOURCE_METADATA, fileName),
+                filter.eq(OWNER_METADATA, ownerId)).build();
+        vectorStore.delete(expression);
+        // Recomputed from the store on the next chat turn
+        usersWithDocuments.remove(ownerId);
+    }
+
+    private List<Document> read(FileInfo fileInfo) throws IOException {
+        // Decoded on the fly if the file is stored compressed
+        Resource resource = fileStorageService.load(fileInfo.getFileName());
+        if (resource == null) {
+            throw new IllegalStateException("Uploaded file " + fileInfo.getFileName() + " not found");
+        }
+        String fileName = fileInfo.getFileName().toLowerCase();
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+        if ("pdf".equals(extension)) {
+            return new PagePdfDocumentReader(resource).read();
+        }
+        if (TEXT_EXTENSIONS.contains(extension)) {
+            return new TextReader(resource).read();
+        }
+        // Office formats and anything else Tika can make sense of
+        return new TikaDocumentReader(resource).read();
+    }
+
+    private void update(IngestionStatus status, State state, String error) {
+        status.setState(state);
+        status.setError(error);
+        status.setUpdatedAt(LocalDateTime.now());
+    }
+}
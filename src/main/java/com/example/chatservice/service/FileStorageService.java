@@ -1,23 +1,55 @@
 package com.example.chatservice.service;
 
 import com.example.chatservice.model.FileInfo;
+import com.example.chatservice.model.StoredBlob;
+import com.example.chatservice.model.StoredFile;
+import com.example.chatservice.model.dto.FileInfoPage;
+import com.example.chatservice.model.dto.StorageUsage;
+import com.example.chatservice.repository.StoredFileRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class FileStorageService {
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
 
     // List of allowed file extensions
     private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList(
@@ -33,47 +65,479 @@ public class FileStorageService {
             "zip", "rar", "7z"
     );
 
-    // Max file size (10MB)
+    // Uploads are written here first and moved into the blob store once their hash is known
+    static final String STAGING_DIR = ".partial";
+
+    // Document types that are zip containers or compressed streams already
+    private static final List<String> PRECOMPRESSED_DOCUMENTS = Arrays.asList("pdf", "docx", "xlsx", "pptx");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Max file size for single-request multipart uploads (10MB); larger files use chunked uploads
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
 
+    private final BlobStore blobStore;
+    private final StoredFileRepository storedFileRepository;
+    // Declared sizes of each user's chunked uploads still in progress, counted against the quota
+    private final Map<Long, AtomicLong> reservedBytes = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary compressionRatios;
+
     @Value("${file.upload-dir:./uploads}")
     private String uploadDir;
+
+    @Value("${chat.files.quota-per-user:0}")
+    private DataSize quotaPerUser;
+
+    @Value("${chat.files.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    @Value("${chat.files.compression.level:6}")
+    private int compressionLevel;
+
+    // Raw size must be at least this many times the compressed size to keep the compressed copy
+    @Value("${chat.files.compression.min-ratio:1.2}")
+    private double minCompressionRatio;
+
+    public FileStorageService(BlobStore blobStore, StoredFileRepository storedFileRepository,
+                              MeterRegistry meterRegistry) {
+        this.blobStore = blobStore;
+        this.storedFileRepository = storedFileRepository;
+        this.meterRegistry = meterRegistry;
+        this.compressionRatios = DistributionSummary.builder("chat.files.compression_ratio")
+                .description("Raw size over stored size of files stored gzipped")
+                .register(meterRegistry);
+    }
+
     @PostConstruct
     public void init() {
         try {
             Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-            Files.createDirectories(uploadPath);
+            Files.createDirectories(uploadPath.resolve(STAGING_DIR));
             System.out.println("File upload directory created at: " + uploadPath);
         } catch (IOException e) {
             throw new RuntimeException("Could not create upload directory: " + uploadDir, e);
         }
     }
     
-    public FileInfo storeFile(MultipartFile file) throws IOException {
+    public FileInfo storeFile(MultipartFile file, Long ownerId) throws IOException {
         // Perform file validation
         validateFile(file);
+        checkQuota(ownerId, file.getSize());
+        long start = System.nanoTime();
         
-        // Get the upload directory path
-        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-        
-        // Generate a unique file name to prevent conflicts
+        // Stage the upload, hashing (and if worthwhile compressing) it on the way in
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = getFileExtension(originalFileName);
-        String fileName = UUID.randomUUID().toString() + "." + fileExtension;
-        
-        // Copy the file to the upload directory
-        Path targetLocation = uploadPath.resolve(fileName);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        Staged staged = stage(file.getInputStream(),
+                isCompressible(file.getContentType(), getFileExtension(originalFileName)));
+        return storeStaged(staged, newFileName(originalFileName), originalFileName, file.getContentType(), ownerId,
+                LocalDateTime.now(), "multipart", start);
+    }
+
+    /**
+     * Stores a fully received chunked upload whose content hashes to {@code sha256}. The quota is
+     * checked again first, since the user may have stored other files since the upload started.
+     *
+     * @param reservedSize bytes reserved for this upload with {@link #reserveQuota}; released once
+     *                     the file is stored, and kept if storing fails
+     */
+    public FileInfo storeCompletedUpload(Path completedFile, String sha256, String originalFileName,
+                                         String contentType, Long ownerId, long reservedSize) throws IOException {
+        originalFileName = StringUtils.cleanPath(originalFileName);
+        validateFileName(originalFileName);
+        checkQuota(ownerId, Files.size(completedFile) - reservedSize);
+
+        long start = System.nanoTime();
+        Staged staged;
+        if (isCompressible(contentType, getFileExtension(originalFileName))) {
+            // Chunks arrive in any order, so the assembled file is compressed in one pass here
+            try (InputStream in = Files.newInputStream(completedFile)) {
+                staged = stage(in, true);
+            }
+            Files.delete(completedFile);
+        } else {
+            staged = new Staged(completedFile, sha256, Files.size(completedFile), null);
+        }
+        FileInfo fileInfo = storeStaged(staged, newFileName(originalFileName), originalFileName, contentType, ownerId,
+                LocalDateTime.now(), "chunked", start);
+        // Now counted by the stored file itself
+        releaseQuota(ownerId, reservedSize);
+        return fileInfo;
+    }
+
+    /**
+     * What the download path needs to know about a stored file.
+     *
+     * @param path            the bytes on disk, encoded as {@code contentEncoding}
+     * @param size            size of the file itself, after decoding
+     * @param sha256          content hash, or null for files stored before content addressing
+     * @param contentType     as uploaded, or null if unknown
+     * @param lastModified    epoch millis
+     * @param contentEncoding {@code gzip}, or null when stored as is
+     * @param storedSize      size of {@code path}
+     */
+    public record StoredContent(Path path, String originalFileName, String contentType, long size,
+                                String sha256, long lastModified, String contentEncoding, long storedSize) {
+
+        public boolean gzipped() {
+            return StoredBlob.GZIP.equals(contentEncoding);
+        }
+    }
+
+    /**
+     * The decoded bytes of a stored file.
+     */
+    public InputStream openStream(StoredContent content) throws IOException {
+        InputStream in = Files.newInputStream(content.path());
+        if (!content.gzipped()) {
+            return in;
+        }
+        try {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * A stored file as a {@link Resource} over its decoded bytes, or null if there is no such file.
+     */
+    public Resource load(String fileName) throws IOException {
+        StoredContent content = describe(fileName);
+        if (content == null) {
+            return null;
+        }
+        if (!content.gzipped()) {
+            return new FileSystemResource(content.path());
+        }
+        return new AbstractResource() {
+            @Override
+            public String getDescription() {
+                return "stored file [" + fileName + "]";
+            }
+
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+
+            @Override
+            public long contentLength() {
+                return content.size();
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return openStream(content);
+            }
+        };
+    }
+
+    /**
+     * Looks up a stored file for download, or returns null if there is no such file.
+     */
+    public StoredContent describe(String fileName) throws IOException {
+        Optional<StoredFile> storedFile = storedFileRepository.findById(fileName);
+        if (storedFile.isPresent()) {
+            StoredFile file = storedFile.get();
+            Path path = blobStore.pathOf(file.getBlobHash());
+            Optional<StoredBlob> blob = blobStore.find(file.getBlobHash());
+            return new StoredContent(path, file.getOriginalFileName(), file.getContentType(), file.getSize(),
+                    file.getBlobHash(), file.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                    blob.map(StoredBlob::getContentEncoding).orElse(null),
+                    blob.map(StoredBlob::getStoredSizeOrSize).orElse(file.getSize()));
+        }
+
+        Path legacy = legacyPath(fileName);
+        if (legacy == null) {
+            return null;
+        }
+        long size = Files.size(legacy);
+        return new StoredContent(legacy, fileName, null, size, null,
+                Files.getLastModifiedTime(legacy).toMillis(), null, size);
+    }
+
+    /**
+     * Rejects an upload of {@code size} bytes that would take the user past
+     * {@code chat.files.quota-per-user}, counting both stored files and the space reserved by
+     * chunked uploads in progress. Single-request uploads are checked before they are accepted
+     * without reserving anything, so concurrent ones can still overshoot the quota by at most
+     * their own size.
+     */
+    public void checkQuota(Long ownerId, long size) {
+        long quota = quotaPerUser.toBytes();
+        if (quota <= 0) {
+            return;
+        }
+        long used = storedFileRepository.sumSizeByOwnerId(ownerId) + reserved(ownerId).get();
+        if (used + size > quota) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Storage quota exceeded: " + used + " of " + quota + " bytes used or reserved");
+        }
+    }
+
+    /**
+     * Sets aside {@code size} bytes of the user's quota for a chunked upload, or rejects it like
+     * {@link #checkQuota}. Concurrent reservations can't both take the last of the quota: each
+     * is added before the check, and backed out if the check fails.
+     */
+    public void reserveQuota(Long ownerId, long size) {
+        AtomicLong reserved = reserved(ownerId);
+        reserved.addAndGet(size);
+        try {
+            checkQuota(ownerId, 0);
+        } catch (RuntimeException e) {
+            reserved.addAndGet(-size);
+            throw e;
+        }
+    }
+
+    /**
+     * Gives back space reserved for a chunked upload that was discarded.
+     */
+    public void releaseQuota(Long ownerId, long size) {
+        reserved(ownerId).addAndGet(-size);
+    }
+
+    /**
+     * Reserves space for a chunked upload restored after a restart; it was admitted already.
+     */
+    void restoreReservation(Long ownerId, long size) {
+        reserved(ownerId).addAndGet(size);
+    }
+
+    private AtomicLong reserved(Long ownerId) {
+        return reservedBytes.computeIfAbsent(ownerId, id -> new AtomicLong());
+    }
+
+    public StorageUsage getUsage(Long ownerId) {
+        return new StorageUsage(storedFileRepository.countByOwnerId(ownerId),
+                storedFileRepository.sumSizeByOwnerId(ownerId), Math.max(0, quotaPerUser.toBytes()));
+    }
+
+    /**
+     * A page of the user's files, newest first.
+     */
+    public FileInfoPage listFiles(Long ownerId, int page, int size) {
+        Slice<StoredFile> files = storedFileRepository.findByOwnerIdOrderByCreatedAtDesc(ownerId,
+                PageRequest.of(page, size));
+        return FileInfoPage.of(files.map(StoredFile::toFileInfo).getContent(), page, files.hasNext());
+    }
+
+    /**
+     * Moves a file from the flat upload directory into the blob store, keeping its name so
+     * existing URLs and message attachments still resolve. The file stays readable at its old
+     * location until its row is saved, so downloads keep working throughout.
+     *
+     * @return false if it was no longer there or had already been moved
+     */
+    public boolean adoptLegacyFile(String fileName, Long ownerId) throws IOException {
+        Path legacy = legacyPath(fileName);
+        if (legacy == null) {
+            return false;
+        }
+        if (storedFileRepository.existsById(fileName)) {
+            // Adopted before, but deleting the original was interrupted
+            Files.deleteIfExists(legacy);
+            return false;
+        }
+
+        long start = System.nanoTime();
+        Staged staged;
+        if (isCompressible(null, getFileExtension(fileName))) {
+            try (InputStream in = Files.newInputStream(legacy)) {
+                staged = stage(in, true);
+            }
+        } else {
+            Path link = stagingPath().resolve("adopt-" + UUID.randomUUID());
+            try {
+                Files.createLink(link, legacy);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(legacy, link);
+            }
+            MessageDigest digest = BlobStore.newDigest();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(link), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                Files.deleteIfExists(link);
+                throw e;
+            }
+            staged = new Staged(link, BlobStore.toHex(digest), Files.size(link), null);
+        }
+
+        LocalDateTime createdAt = LocalDateTime.ofInstant(Files.getLastModifiedTime(legacy).toInstant(),
+                ZoneId.systemDefault());
+        storeStaged(staged, fileName, fileName, null, ownerId, createdAt, "migrated", start);
+        Files.delete(legacy);
+        return true;
+    }
+
+    /**
+     * Deletes one of the user's files. The bytes go away only once no other file shares them.
+     *
+     * @return false if the user has no such file
+     */
+    public boolean deleteFile(String fileName, Long ownerId) throws IOException {
+        Optional<StoredFile> storedFile = storedFileRepository.findById(fileName);
+        if (storedFile.isEmpty() || !ownerId.equals(storedFile.get().getOwnerId())) {
+            return false;
+        }
+        // Of concurrent deletes of the same file only one removes the row, and only that one may
+        // drop the blob reference
+        if (storedFileRepository.deleteOwned(fileName, ownerId) != 1) {
+            return false;
+        }
+        blobStore.removeReference(storedFile.get().getBlobHash());
+        return true;
+    }
+
+    // Bytes ready for the blob store: size is that of the raw content, hash is over the raw content
+    private record Staged(Path path, String hash, long size, String contentEncoding) {
+    }
+
+    /**
+     * Copies {@code in} into a staging file, hashing it on the way and, if {@code compress},
+     * gzipping it. Compression that saves too little to be worth decoding on download is undone.
+     */
+    private Staged stage(InputStream in, boolean compress) throws IOException {
+        Path staged = Files.createTempFile(stagingPath(), "upload-", ".tmp");
+        MessageDigest digest = BlobStore.newDigest();
+        long size;
+        try (InputStream source = new DigestInputStream(in, digest)) {
+            if (compress) {
+                try (OutputStream out = gzip(Files.newOutputStream(staged))) {
+                    size = source.transferTo(out);
+                }
+            } else {
+                size = Files.copy(source, staged, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(staged);
+            throw e;
+        }
+
+        String hash = BlobStore.toHex(digest);
+        if (compress && size < minCompressionRatio * Files.size(staged)) {
+            Path raw = Files.createTempFile(stagingPath(), "upload-", ".tmp");
+            try (InputStream decoded = new GZIPInputStream(Files.newInputStream(staged), BUFFER_SIZE)) {
+                Files.copy(decoded, raw, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(raw);
+                throw e;
+            } finally {
+                Files.deleteIfExists(staged);
+            }
+            return new Staged(raw, hash, size, null);
+        }
+        return new Staged(staged, hash, size, compress ? StoredBlob.GZIP : null);
+    }
+
+    private OutputStream gzip(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(compressionLevel);
+            }
+        };
+    }
+
+    /**
+     * Hands staged bytes to the blob store and records the file. {@code source} and
+     * {@code startNanos} (when receiving began) only feed the storage metrics.
+     */
+    private FileInfo storeStaged(Staged staged, String fileName, String originalFileName, String contentType,
+                                 Long ownerId, LocalDateTime createdAt, String source, long startNanos)
+            throws IOException {
+        StoredBlob blob = blobStore.addReference(staged.hash(), staged.path(), staged.size(),
+                staged.contentEncoding());
+        logger.debug("Stored {} as blob {} ({} bytes, {} on disk)", fileName, blob.getHash(), blob.getSize(),
+                blob.getStoredSizeOrSize());
+
+        FileInfo fileInfo = createFileInfo(fileName, originalFileName, contentType, staged.size());
+        // Taken from the blob, which may be an earlier upload of the same content stored differently
+        double compressionRatio = blob.getStoredSizeOrSize() > 0
+                ? (double) blob.getSize() / blob.getStoredSizeOrSize()
+                : 1.0;
+        try {
+            storedFileRepository.save(new StoredFile(fileName, staged.hash(), ownerId, originalFileName, contentType,
+                    staged.size(), fileInfo.getFileType(), createdAt, compressionRatio));
+        } catch (RuntimeException e) {
+            blobStore.removeReference(staged.hash());
+            throw e;
+        }
+
+        Timer.builder("chat.files.store")
+                .description("Time to hash, compress, deduplicate and record an upload")
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("chat.files.stored.bytes")
+                .baseUnit("bytes")
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(staged.size());
+        if (blob.isGzipped()) {
+            compressionRatios.record(compressionRatio);
+        }
+        return fileInfo;
+    }
+
+    /**
+     * Whether content of this type is stored gzipped: text-like documents, but not PDFs or Office
+     * Open XML files, which are compressed internally already.
+     */
+    private boolean isCompressible(String contentType, String extension) {
+        if (!compressionEnabled) {
+            return false;
+        }
+        extension = extension.toLowerCase();
+        String fileType = categorizeFileType(contentType, extension);
+        return ("document".equals(fileType) && !PRECOMPRESSED_DOCUMENTS.contains(extension))
+                || "svg".equals(extension);
+    }
+
+    // Generate a unique user-visible file name; identical content shares the blob
+    private String newFileName(String originalFileName) {
+        return UUID.randomUUID().toString() + "." + getFileExtension(originalFileName);
+    }
+
+    /**
+     * A file uploaded before content-addressable storage, sitting directly in the upload
+     * directory, or null if there is none by that name.
+     */
+    private Path legacyPath(String fileName) {
+        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path legacy = uploadPath.resolve(fileName).normalize();
+        if (!uploadPath.equals(legacy.getParent()) || !Files.isRegularFile(legacy)) {
+            return null;
+        }
+        return legacy;
+    }
+
+    private Path stagingPath() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize().resolve(STAGING_DIR);
+    }
+
+    /**
+     * Rejects file names whose extension is not on the allow list.
+     */
+    public void validateFileName(String fileName) {
+        String fileExtension = getFileExtension(StringUtils.cleanPath(fileName)).toLowerCase();
         
-        // Create and return file info
+        if (!ALLOWED_EXTENSIONS.contains(fileExtension)) {
+            throw new IllegalArgumentException("File type not allowed. Allowed extensions: " 
+                    + String.join(", ", ALLOWED_EXTENSIONS));
+        }
+    }
+
+    private FileInfo createFileInfo(String fileName, String originalFileName, String contentType, long size) {
         FileInfo fileInfo = new FileInfo();
         fileInfo.setFileName(fileName);
         fileInfo.setOriginalFileName(originalFileName);
-        fileInfo.setContentType(file.getContentType());
-        fileInfo.setSize(file.getSize());
+        fileInfo.setContentType(contentType);
+        fileInfo.setSize(size);
         fileInfo.setUrl("/api/files/" + fileName);
-        fileInfo.setFileType(categorizeFileType(file.getContentType(), fileExtension));
-        
+        fileInfo.setFileType(categorizeFileType(contentType, getFileExtension(originalFileName)));
         return fileInfo;
     }
     
@@ -89,13 +553,7 @@ public class FileStorageService {
         }
         
         // Check file extension
-        String fileName = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = getFileExtension(fileName).toLowerCase();
-        
-        if (!ALLOWED_EXTENSIONS.contains(fileExtension)) {
-            throw new IllegalArgumentException("File type not allowed. Allowed extensions: " 
-                    + String.join(", ", ALLOWED_EXTENSIONS));
-        }
+        validateFileName(file.getOriginalFilename());
     }
     
     private String getFileExtension(String fileName) {
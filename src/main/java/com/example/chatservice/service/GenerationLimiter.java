@@ -0,0 +1,214 @@
+package com.example.chatservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of the model server. At most {@code limit} generations run at once;
+ * further requests wait in a bounded queue for up to {@code queue-timeout}, and are rejected right
+ * away once the queue is full. Rejections surface as {@link GenerationRejectedException} (503 with
+ * {@code Retry-After}).
+ * <p>
+ * With {@code chat.admission.adaptive.enabled} the limit follows observed generation latency:
+ * it grows by one while latency stays under the target and shrinks by 10% when it goes over
+ * (additive increase, multiplicative decrease), staying within min/max.
+ */
+@Service
+public class GenerationLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(GenerationLimiter.class);
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final int maxQueue;
+    private final long queueTimeoutNanos;
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+
+    // Fair so waiting requests are admitted roughly in arrival order
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition permitAvailable = lock.newCondition();
+    private int limit;
+    private int inFlight;
+    private int waiting;
+    private double averageLatencyNanos;
+
+    private final Timer waitTimer;
+    private final Counter queueFullRejections;
+    private final Counter timeoutRejections;
+
+    public GenerationLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${chat.admission.max-concurrent:8}") int maxConcurrent,
+            @Value("${chat.admission.max-queue:100}") int maxQueue,
+            @Value("${chat.admission.queue-timeout:30s}") Duration queueTimeout,
+            @Value("${chat.admission.adaptive.enabled:false}") boolean adaptive,
+            @Value("${chat.admission.adaptive.min-concurrent:2}") int minLimit,
+            @Value("${chat.admission.adaptive.max-concurrent:32}") int maxLimit,
+            @Value("${chat.admission.adaptive.target-latency:20s}") Duration targetLatency) {
+        this.limit = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.adaptive = adaptive;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatency.toNanos();
+
+        Gauge.builder("chat.admission.in_flight", this, GenerationLimiter::getInFlight)
+                .description("Generations currently running")
+                .register(meterRegistry);
+        Gauge.builder("chat.admission.queue_depth", this, GenerationLimiter::getQueueDepth)
+                .description("Requests waiting for a generation slot")
+                .register(meterRegistry);
+        Gauge.builder("chat.admission.limit", this, GenerationLimiter::getLimit)
+                .description("Current concurrency limit")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("chat.admission.wait")
+                .description("Time spent waiting for a generation slot")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueFullRejections = Counter.builder("chat.admission.rejected")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.timeoutRejections = Counter.builder("chat.admission.rejected")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A slot for one generation. Close it when the generation has finished; closing twice is harmless.
+     */
+    public final class Permit implements AutoCloseable {
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /**
+     * Waits for a generation slot.
+     *
+     * @throws GenerationRejectedException if the queue is full or no slot frees up in time
+     */
+    public Permit acquire() {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (inFlight < limit && waiting == 0) {
+                inFlight++;
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return new Permit();
+            }
+            if (waiting >= maxQueue) {
+                queueFullRejections.increment();
+                throw new GenerationRejectedException("Too many chat requests, please retry later", retryAfterSeconds());
+            }
+
+            waiting++;
+            try {
+                long remaining = queueTimeoutNanos;
+                while (inFlight >= limit) {
+                    if (remaining <= 0) {
+                        timeoutRejections.increment();
+                        throw new GenerationRejectedException("Timed out waiting for the model, please retry later",
+                                retryAfterSeconds());
+                    }
+                    remaining = permitAvailable.awaitNanos(remaining);
+                }
+                inFlight++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GenerationRejectedException("Interrupted while waiting for the model", retryAfterSeconds());
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Permit();
+    }
+
+    private void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            averageLatencyNanos = averageLatencyNanos == 0
+                    ? latencyNanos
+                    : averageLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - averageLatencyNanos);
+
+            if (adaptive) {
+                adaptLimit(latencyNanos);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adaptLimit(long latencyNanos) {
+        int previous = limit;
+        if (latencyNanos > targetLatencyNanos) {
+            limit = Math.max(minLimit, (int) (limit * 0.9));
+        } else if (inFlight + 1 >= limit || waiting > 0) {
+            // Only probe upwards when the current limit is actually the bottleneck
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        if (limit != previous) {
+            logger.debug("Generation concurrency limit changed from {} to {}", previous, limit);
+        }
+    }
+
+    /**
+     * Rough time until a queued request would be served, clamped to 1..60 seconds.
+     */
+    private long retryAfterSeconds() {
+        double perSlotNanos = averageLatencyNanos == 0 ? TimeUnit.SECONDS.toNanos(5) : averageLatencyNanos;
+        double estimate = perSlotNanos * (waiting + 1) / Math.max(1, limit);
+        return Math.max(1, Math.min(60, (long) Math.ceil(estimate / TimeUnit.SECONDS.toNanos(1))));
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.chatservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures model generations made through a {@code ChatClient}: total generation time, time to
+ * the first streamed token, generated tokens and tokens per second. It runs after the memory and
+ * retrieval advisors, so only the model call itself is timed.
+ * <p>
+ * Token counts come from the model's reported usage; for streams without usage every non-empty
+ * chunk counts as one token, which is what Ollama sends.
+ */
+@Component
+public class GenerationMetricsAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    private final MeterRegistry meterRegistry;
+    private final Timer timeToFirstToken;
+    private final Counter callTokens;
+    private final Counter streamTokens;
+    private final DistributionSummary callTokensPerSecond;
+    private final DistributionSummary streamTokensPerSecond;
+
+    public GenerationMetricsAdvisor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.timeToFirstToken = Timer.builder("chat.llm.time_to_first_token")
+                .description("Time from sending a streaming prompt to its first token")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.callTokens = tokens("call");
+        this.streamTokens = tokens("stream");
+        this.callTokensPerSecond = tokensPerSecond("call");
+        this.streamTokensPerSecond = tokensPerSecond("stream");
+    }
+
+    @Override
+    public String getName() {
+        return "generationMetrics";
+    }
+
+    @Override
+    public int getOrder() {
+        // Innermost, right before the model
+        return Ordered.LOWEST_PRECEDENCE - 1000;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            AdvisedResponse advisedResponse = chain.nextAroundCall(advisedRequest);
+            outcome = "success";
+            long elapsed = System.nanoTime() - start;
+            long tokens = generationTokens(advisedResponse.response());
+            if (tokens > 0) {
+                callTokens.increment(tokens);
+                callTokensPerSecond.record(tokens / (elapsed / 1e9));
+            }
+            return advisedResponse;
+        } finally {
+            generationTimer("call", outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        long start = System.nanoTime();
+        AtomicLong firstToken = new AtomicLong();
+        AtomicLong chunks = new AtomicLong();
+        AtomicLong reportedTokens = new AtomicLong();
+
+        return chain.nextAroundStream(advisedRequest)
+                .doOnNext(advisedResponse -> {
+                    ChatResponse response = advisedResponse.response();
+                    if (hasText(response)) {
+                        if (firstToken.compareAndSet(0, System.nanoTime())) {
+                            timeToFirstToken.record(firstToken.get() - start, TimeUnit.NANOSECONDS);
+                        }
+                        chunks.incrementAndGet();
+                    }
+                    // Ollama reports usage on the final chunk
+                    long reported = generationTokens(response);
+                    if (reported > 0) {
+                        reportedTokens.set(reported);
+                    }
+                })
+                .doFinally(signal -> {
+                    long elapsed = System.nanoTime() - start;
+                    String outcome = signal == SignalType.ON_COMPLETE ? "success"
+                            : signal == SignalType.CANCEL ? "cancelled" : "error";
+                    generationTimer("stream", outcome).record(elapsed, TimeUnit.NANOSECONDS);
+
+                    long tokens = reportedTokens.get() > 0 ? reportedTokens.get() : chunks.get();
+                    if (tokens > 0) {
+                        streamTokens.increment(tokens);
+                        if (signal == SignalType.ON_COMPLETE) {
+                            streamTokensPerSecond.record(tokens / (elapsed / 1e9));
+                        }
+                    }
+                });
+    }
+
+    private Timer generationTimer(String mode, String outcome) {
+        return Timer.builder("chat.llm.generation")
+                .description("Total time of a model generation")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter tokens(String mode) {
+        return Counter.builder("chat.llm.tokens")
+                .description("Tokens generated by the model")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary tokensPerSecond(String mode) {
+        return DistributionSummary.builder("chat.llm.tokens_per_second")
+                .description("Generation throughput of completed generations")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static boolean hasText(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return false;
+        }
+        String text = response.getResult().getOutput().getText();
+        return text != null && !text.isEmpty();
+    }
+
+    private static long generationTokens(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return 0;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null || usage.getGenerationTokens() == null) {
+            return 0;
+        }
+        return usage.getGenerationTokens();
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.chatservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Downscaled variants of uploaded images, so a chat preview doesn't cost the full-size original.
+ * Requested widths are snapped up to one of {@code chat.thumbnails.widths}, which keeps the number
+ * of variants per image small. Variants are JPEG, or PNG when the source has transparency (the JDK
+ * has no WebP encoder).
+ * <p>
+ * Rendered variants live in {@code variants/} under the upload directory, keyed by the source's
+ * content hash, and are evicted least-recently-used-first once they exceed
+ * {@code chat.thumbnails.cache-max-size}. Concurrent requests for a variant that is not cached yet
+ * wait for a single render instead of each decoding the original.
+ */
+@Service
+public class ImageVariantService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    // Decoded at no more than twice the target width, then smoothed down
+    private static final int OVERSAMPLING = 2;
+
+    private record CachedVariant(Path path, long size) {
+    }
+
+    private final Path variantDir;
+    private final int[] widths;
+    private final long maxCacheBytes;
+    private final long maxSourcePixels;
+    private final float jpegQuality;
+
+    // Access-ordered, so iteration starts at the least recently used variant
+    private final LinkedHashMap<String, CachedVariant> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private final Map<String, CompletableFuture<CachedVariant>> rendering = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter renders;
+
+    public ImageVariantService(
+            @Value("${file.upload-dir:./uploads}") String uploadDir,
+            @Value("${chat.thumbnails.widths:128,256,512,1024}") int[] widths,
+            @Value("${chat.thumbnails.cache-max-size:512MB}") DataSize maxCacheSize,
+            @Value("${chat.thumbnails.max-source-pixels:100000000}") long maxSourcePixels,
+            @Value("${chat.thumbnails.jpeg-quality:0.85}") float jpegQuality,
+            MeterRegistry meterRegistry) {
+        this.variantDir = Paths.get(uploadDir).toAbsolutePath().normalize().resolve("variants");
+        this.widths = widths.clone();
+        Arrays.sort(this.widths);
+        this.maxCacheBytes = maxCacheSize.toBytes();
+        this.maxSourcePixels = maxSourcePixels;
+        this.jpegQuality = jpegQuality;
+
+        this.hits = Counter.builder("chat.thumbnails.requests")
+                .tag("result", "hit").register(meterRegistry);
+        this.renders = Counter.builder("chat.thumbnails.requests")
+                .tag("result", "render").register(meterRegistry);
+        Gauge.builder("chat.thumbnails.cache_bytes", this, ImageVariantService::cacheSize)
+                .description("Disk space used by cached image variants")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Re-indexes variants left by a previous run, oldest first so they are evicted first.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(variantDir);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(variantDir)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        }
+        List<Path> ordered = new ArrayList<>(files);
+        ordered.sort(Comparator.comparingLong(ImageVariantService::lastModified));
+        for (Path file : ordered) {
+            String name = file.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            if (dot <= 0 || name.startsWith("render-")) {
+                // Left over from an interrupted render
+                Files.deleteIfExists(file);
+                continue;
+            }
+            remember(name.substring(0, dot), new CachedVariant(file, Files.size(file)));
+        }
+        evict();
+        logger.info("Indexed {} cached image variants ({} bytes)", cache.size(), cacheSize());
+    }
+
+    /**
+     * The configured width a request for {@code requested} pixels is served at: the smallest
+     * that is at least as wide, or the largest configured width.
+     */
+    public int snapWidth(int requested) {
+        for (int width : widths) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    public boolean supports(String contentType) {
+        // GIFs would lose their animation and SVGs scale on their own
+        return contentType != null && contentType.startsWith("image/")
+                && !contentType.equals("image/gif") && !contentType.startsWith("image/svg")
+                && ImageIO.getImageReadersByMIMEType(contentType).hasNext();
+    }
+
+    /**
+     * The variant of {@code source} at {@code width} (from {@link #snapWidth}), rendering it if
+     * needed. Returns null when the original should be served instead: it is no wider than
+     * {@code width}, too large to decode, or can't be read as an image.
+     */
+    public FileStorageService.StoredContent variant(FileStorageService.StoredContent source, String contentType,
+                                                    int width) throws IOException {
+        String key = cacheKey(source, width);
+        CachedVariant variant = cached(key);
+        if (variant == null) {
+            variant = renderOnce(key, source, contentType, width);
+        } else {
+            hits.increment();
+        }
+        if (variant == null) {
+            return null;
+        }
+        String variantType = variant.path().toString().endsWith(".png") ? "image/png" : "image/jpeg";
+        return new FileStorageService.StoredContent(variant.path(), source.originalFileName(), variantType,
+                variant.size(), null, source.lastModified(), null, variant.size());
+    }
+
+    private CachedVariant renderOnce(String key, FileStorageService.StoredContent source, String contentType,
+                                     int width) throws IOException {
+        CompletableFuture<CachedVariant> mine = new CompletableFuture<>();
+        CompletableFuture<CachedVariant> existing = rendering.putIfAbsent(key, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            // The previous render may have finished between the cache miss and putIfAbsent
+            CachedVariant variant = cached(key);
+            if (variant == null) {
+                variant = render(key, source, contentType, width);
+                if (variant != null) {
+                    renders.increment();
+                    remember(key, variant);
+                    evict();
+                }
+            }
+            mine.complete(variant);
+            return variant;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            rendering.remove(key, mine);
+        }
+    }
+
+    private CachedVariant render(String key, FileStorageService.StoredContent source, String contentType, int width)
+            throws IOException {
+        BufferedImage image;
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.path().toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByMIMEType(contentType);
+            if (input == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if (sourceWidth <= width) {
+                    return null;
+                }
+                if ((long) sourceWidth * sourceHeight > maxSourcePixels) {
+                    logger.debug("Not rendering a variant of {}: {}x{} exceeds the pixel limit",
+                            source.path().getFileName(), sourceWidth, sourceHeight);
+                    return null;
+                }
+                // Let the decoder skip pixels instead of decoding the whole original
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, sourceWidth / (width * OVERSAMPLING));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            logger.debug("Could not decode {} as {}: {}", source.path().getFileName(), contentType, e.getMessage());
+            return null;
+        }
+
+        BufferedImage scaled = scale(image, width);
+        boolean alpha = scaled.getColorModel().hasAlpha();
+        Path target = variantDir.resolve(key + (alpha ? ".png" : ".jpg"));
+        Path temp = Files.createTempFile(variantDir, "render-", ".tmp");
+        try {
+            write(scaled, alpha ? "png" : "jpeg", temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return new CachedVariant(target, Files.size(target));
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width) {
+        int height = Math.max(1, (int) Math.round(image.getHeight() * (width / (double) image.getWidth())));
+        boolean alpha = image.getColorModel().hasAlpha();
+        BufferedImage scaled = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format.equals("jpeg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String cacheKey(FileStorageService.StoredContent source, int width) {
+        // Identical uploads share the blob and so share their variants
+        String content = source.sha256() != null
+                ? source.sha256()
+                : source.path().getFileName() + "-" + Long.toHexString(source.lastModified());
+        return content + "-w" + width;
+    }
+
+    private CachedVariant cached(String key) {
+        CachedVariant variant;
+        synchronized (cache) {
+            variant = cache.get(key);
+        }
+        if (variant != null && !Files.exists(variant.path())) {
+            forget(key);
+            return null;
+        }
+        return variant;
+    }
+
+    private void remember(String key, CachedVariant variant) {
+        synchronized (cache) {
+            CachedVariant previous = cache.put(key, variant);
+            cachedBytes += variant.size() - (previous != null ? previous.size() : 0);
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (cache) {
+            CachedVariant removed = cache.remove(key);
+            if (removed != null) {
+                cachedBytes -= removed.size();
+            }
+        }
+    }
+
+    private void evict() {
+        List<Path> evicted = new ArrayList<>();
+        synchronized (cache) {
+            Iterator<CachedVariant> iterator = cache.values().iterator();
+            while (cachedBytes > maxCacheBytes && iterator.hasNext()) {
+                CachedVariant eldest = iterator.next();
+                iterator.remove();
+                cachedBytes -= eldest.size();
+                evicted.add(eldest.path());
+            }
+        }
+        for (Path path : evicted) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Could not delete cached variant {}", path, e);
+            }
+        }
+    }
+
+    private long cacheSize() {
+        synchronized (cache) {
+            return cachedBytes;
+        }
+    }
+
+    private static CachedVariant await(CompletableFuture<CachedVariant> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an image variant", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("Rendering an image variant failed", e.getCause());
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
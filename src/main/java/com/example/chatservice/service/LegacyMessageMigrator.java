@@ -0,0 +1,73 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.repository.ConversationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Migrates conversations still stored as a single JSON blob into the message table once the
+ * application is up. Runs on its own daemon thread, one conversation per transaction, so the
+ * service keeps serving requests while it works through the backlog.
+ */
+@Component
+public class LegacyMessageMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(LegacyMessageMigrator.class);
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationMessageService conversationMessageService;
+
+    @Value("${chat.messages.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.messages.migration.batch-size:100}")
+    private int batchSize;
+
+    public LegacyMessageMigrator(
+            ConversationRepository conversationRepository,
+            ConversationMessageService conversationMessageService) {
+        this.conversationRepository = conversationRepository;
+        this.conversationMessageService = conversationMessageService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            logger.info("Legacy message migration disabled");
+            return;
+        }
+        Thread thread = new Thread(this::migrateAll, "legacy-message-migrator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void migrateAll() {
+        long lastId = 0;
+        int conversations = 0;
+        int messages = 0;
+
+        List<Long> ids;
+        while (!(ids = conversationRepository.findIdsWithLegacyMessages(lastId, PageRequest.of(0, batchSize))).isEmpty()) {
+            for (Long id : ids) {
+                try {
+                    messages += conversationMessageService.migrateLegacyMessages(id);
+                    conversations++;
+                } catch (Exception e) {
+                    // Leave it for the on-access migration and move on
+                    logger.error("Failed to migrate legacy messages of conversation {}", id, e);
+                }
+                lastId = id;
+            }
+        }
+
+        if (conversations > 0) {
+            logger.info("Legacy message migration finished: {} conversations, {} messages", conversations, messages);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.model.FileInfo;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes the content of a stored message (text and attachment) into the {@code body} column.
+ * The first byte names the format, so rows stay readable when the configured format changes:
+ * the low bits are the serialization ({@link #FORMAT_JSON} or {@link #FORMAT_CBOR}) and
+ * {@link #DEFLATED} marks a raw-deflate compressed payload. Attachments are stored with short
+ * keys and without their URL when it is the usual {@code /api/files/<fileName>}.
+ * <p>
+ * Compression is only applied to payloads of at least {@code minCompressSize} bytes, and only
+ * kept when it actually saves space; short user messages are stored as is.
+ */
+@Component
+public class MessageCodec {
+
+    public static final int FORMAT_JSON = 1;
+    public static final int FORMAT_CBOR = 2;
+    public static final int DEFLATED = 0x80;
+    private static final int FORMAT_MASK = 0x0F;
+
+    private static final String FILE_URL_PREFIX = "/api/files/";
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+    private final int format;
+    private final boolean compress;
+    private final int minCompressSize;
+
+    public MessageCodec(
+            @Value("${chat.messages.codec:cbor}") String format,
+            @Value("${chat.messages.compression.enabled:true}") boolean compress,
+            @Value("${chat.messages.compression.min-size:256}") int minCompressSize) {
+        this.format = switch (format.toLowerCase()) {
+            case "json" -> FORMAT_JSON;
+            case "cbor" -> FORMAT_CBOR;
+            default -> throw new IllegalArgumentException("Unknown message codec: " + format);
+        };
+        this.compress = compress;
+        this.minCompressSize = minCompressSize;
+    }
+
+    /**
+     * Text and attachment of a stored message.
+     */
+    public record Content(String message, FileInfo fileInfo) {
+    }
+
+    // Short keys: these are written once per stored message
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Payload(@JsonProperty("m") String message, @JsonProperty("f") Attachment file) {
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Attachment(
+            @JsonProperty("n") String fileName,
+            @JsonProperty("o") String originalFileName,
+            @JsonProperty("c") String contentType,
+            @JsonProperty("s") long size,
+            @JsonProperty("t") String fileType,
+            @JsonProperty("u") String url) {
+    }
+
+    public byte[] encode(String message, FileInfo fileInfo) {
+        Attachment attachment = null;
+        if (fileInfo != null) {
+            String url = (FILE_URL_PREFIX + fileInfo.getFileName()).equals(fileInfo.getUrl()) ? null : fileInfo.getUrl();
+            attachment = new Attachment(fileInfo.getFileName(), fileInfo.getOriginalFileName(),
+                    fileInfo.getContentType(), fileInfo.getSize(), fileInfo.getFileType(), url);
+        }
+
+        byte[] serialized;
+        try {
+            serialized = mapper(format).writeValueAsBytes(new Payload(message, attachment));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode message", e);
+        }
+
+        if (compress && serialized.length >= minCompressSize) {
+            byte[] deflated = deflate(serialized);
+            if (deflated.length < serialized.length) {
+                return withHeader(format | DEFLATED, deflated);
+            }
+        }
+        return withHeader(format, serialized);
+    }
+
+    public Content decode(byte[] body) {
+        if (body == null || body.length == 0) {
+            throw new IllegalArgumentException("Empty message body");
+        }
+        int header = body[0] & 0xFF;
+        byte[] serialized = (header & DEFLATED) != 0
+                ? inflate(body)
+                : Arrays.copyOfRange(body, 1, body.length);
+
+        Payload payload;
+        try {
+            payload = mapper(header & FORMAT_MASK).readValue(serialized, Payload.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode message", e);
+        }
+
+        FileInfo fileInfo = null;
+        Attachment file = payload.file();
+        if (file != null) {
+            fileInfo = new FileInfo(file.fileName(), file.originalFileName(), file.contentType(), file.size(),
+                    file.url() != null ? file.url() : FILE_URL_PREFIX + file.fileName(), file.fileType());
+        }
+        return new Content(payload.message(), fileInfo);
+    }
+
+    private ObjectMapper mapper(int format) {
+        return switch (format) {
+            case FORMAT_JSON -> json;
+            case FORMAT_CBOR -> cbor;
+            default -> throw new IllegalArgumentException("Unknown message format " + format);
+        };
+    }
+
+    private static byte[] withHeader(int header, byte[] payload) {
+        byte[] body = new byte[payload.length + 1];
+        body[0] = (byte) header;
+        System.arraycopy(payload, 0, body, 1, payload.length);
+        return body;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            byte[] buffer = new byte[Math.min(data.length + 64, 8192)];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] body) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(body, 1, body.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed message");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed message", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.vectorstore.FileVectorStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embeds the RAG corpus into the vector store the first time the application sees it. Documents
+ * already in the store (matched by their {@code source} metadata) are skipped, so restarts don't
+ * re-embed anything. Runs on a daemon thread so startup isn't held up by the embedding model.
+ * <p>
+ * Corpus chunks carry {@code corpus = true} instead of an owner, so every user can retrieve from
+ * them with {@link #CORPUS_FILTER}.
+ */
+@Component
+public class RagCorpusLoader {
+    private static final Logger logger = LoggerFactory.getLogger(RagCorpusLoader.class);
+
+    static final String SOURCE_METADATA = "source";
+    public static final String CORPUS_METADATA = "corpus";
+    public static final String CORPUS_FILTER = CORPUS_METADATA + " == true";
+
+    private final VectorStore vectorStore;
+    private final FileVectorStore fileVectorStore;
+    private final Resource[] documents;
+
+    @Value("${chat.rag.ingest-on-startup:true}")
+    private boolean enabled;
+
+    private volatile boolean available;
+
+    public RagCorpusLoader(
+            VectorStore vectorStore,
+            FileVectorStore fileVectorStore,
+            @Value("${chat.rag.documents:classpath:milton.pdf}") Resource[] documents) {
+        this.vectorStore = vectorStore;
+        this.fileVectorStore = fileVectorStore;
+        this.documents = documents;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::ingestAll, "rag-corpus-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Whether any corpus document is in the store, i.e. whether retrieval over it can find anything.
+     */
+    public boolean hasCorpus() {
+        return available;
+    }
+
+    void ingestAll() {
+        for (Resource resource : documents) {
+            String source = resource.getFilename();
+            if (!resource.exists()) {
+                logger.debug("RAG document {} not found, skipping", resource);
+                continue;
+            }
+            if (fileVectorStore.containsMetadata(Map.of(SOURCE_METADATA, source, CORPUS_METADATA, true))) {
+                logger.debug("RAG document {} already embedded", source);
+                available = true;
+                continue;
+            }
+
+            try {
+                long start = System.currentTimeMillis();
+                List<Document> chunks = new TokenTextSplitter().split(new PagePdfDocumentReader(resource).read());
+                chunks.forEach(chunk -> {
+                    chunk.getMetadata().put(SOURCE_METADATA, source);
+                    chunk.getMetadata().put(CORPUS_METADATA, true);
+                });
+                vectorStore.add(chunks);
+                available = true;
+                logger.info("Embedded RAG document {} ({} chunks) in {} ms",
+                        source, chunks.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Failed to embed RAG document {}", source, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.chatservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opt-in cache of model answers looked up by prompt similarity rather than exact text. Prompts are
+ * embedded with the configured {@link EmbeddingModel}; a stored answer is reused when the cosine
+ * similarity of the prompts reaches {@code chat.semantic-cache.similarity-threshold}.
+ * <p>
+ * Answers are kept per namespace (the system prompt they were generated under), expire after
+ * {@code ttl}, and each namespace holds at most {@code max-entries}, evicting the least recently
+ * used. Lookups scan a namespace linearly, which is cheap at the sizes this is meant for.
+ */
+@Service
+public class SemanticResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(SemanticResponseCache.class);
+
+    /**
+     * Result of a lookup: the prompt embedding (null if embedding failed) and the cached answer on a hit.
+     */
+    public record Lookup(float[] embedding, String answer) {
+        public boolean isHit() {
+            return answer != null;
+        }
+    }
+
+    private static final class Entry {
+        final float[] embedding;
+        final String answer;
+        final long expiresAt;
+
+        Entry(float[] embedding, String answer, long expiresAt) {
+            this.embedding = embedding;
+            this.answer = answer;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    private final Map<String, LinkedHashMap<Long, Entry>> namespaces = new HashMap<>();
+    private long nextId;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public SemanticResponseCache(
+            EmbeddingModel embeddingModel,
+            MeterRegistry meterRegistry,
+            @Value("${chat.semantic-cache.enabled:false}") boolean enabled,
+            @Value("${chat.semantic-cache.similarity-threshold:0.95}") double similarityThreshold,
+            @Value("${chat.semantic-cache.ttl:1h}") Duration ttl,
+            @Value("${chat.semantic-cache.max-entries:1000}") int maxEntries) {
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+
+        this.hits = Counter.builder("chat.semantic_cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.semantic_cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("chat.semantic_cache.size", this, SemanticResponseCache::size)
+                .description("Answers held in the semantic cache")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Embeds the prompt and looks for a sufficiently similar prompt answered before.
+     */
+    public Lookup lookup(String namespace, String prompt) {
+        float[] embedding;
+        try {
+            embedding = normalize(embeddingModel.embed(prompt));
+        } catch (Exception e) {
+            logger.warn("Could not embed prompt for semantic cache lookup: {}", e.getMessage());
+            misses.increment();
+            return new Lookup(null, null);
+        }
+
+        long now = System.currentTimeMillis();
+        Entry best = null;
+        double bestSimilarity = similarityThreshold;
+        synchronized (namespaces) {
+            LinkedHashMap<Long, Entry> entries = namespaces.get(namespace);
+            if (entries != null) {
+                Long bestId = null;
+                Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Long, Entry> candidate = iterator.next();
+                    if (candidate.getValue().expiresAt <= now) {
+                        iterator.remove();
+                        continue;
+                    }
+                    double similarity = dot(embedding, candidate.getValue().embedding);
+                    if (similarity >= bestSimilarity) {
+                        bestSimilarity = similarity;
+                        best = candidate.getValue();
+                        bestId = candidate.getKey();
+                    }
+                }
+                if (bestId != null) {
+                    // Touch the entry so it counts as recently used
+                    entries.get(bestId);
+                }
+            }
+        }
+
+        if (best == null) {
+            misses.increment();
+            return new Lookup(embedding, null);
+        }
+        hits.increment();
+        logger.debug("Semantic cache hit in namespace '{}' (similarity {})", namespace, bestSimilarity);
+        return new Lookup(embedding, best.answer);
+    }
+
+    /**
+     * Stores an answer under the embedding returned by a previous {@link #lookup}.
+     */
+    public void put(String namespace, float[] embedding, String answer) {
+        if (embedding == null || answer == null || answer.isEmpty()) {
+            return;
+        }
+        Entry entry = new Entry(embedding, answer, System.currentTimeMillis() + ttlMillis);
+        synchronized (namespaces) {
+            namespaces.computeIfAbsent(namespace, key -> new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            }).put(nextId++, entry);
+        }
+    }
+
+    public int size() {
+        synchronized (namespaces) {
+            return namespaces.values().stream().mapToInt(Map::size).sum();
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    // Vectors are normalized on the way in, so the dot product is the cosine similarity
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
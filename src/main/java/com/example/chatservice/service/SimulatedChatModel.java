@@ -0,0 +1,126 @@
+package com.example.chatservice.service;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A stand-in for a real chat model, for capacity testing without a model generating replies. Each
+ * reply is picked from a fixed set, arrives after a first-token delay drawn from a
+ * {@link SimulatedLatency}, and is streamed word by word at {@code tokensPerSecond}. Only chat is
+ * simulated: embeddings (RAG, semantic cache) still need an Ollama server.
+ * <p>
+ * All waiting happens on Reactor timers, so a streaming generation holds no thread while it
+ * "thinks". {@link #call} is blocking by contract and parks its caller for the whole reply, which
+ * is cheap on virtual threads.
+ */
+public class SimulatedChatModel implements ChatModel {
+
+    public static final List<String> DEFAULT_REPLIES = List.of(
+        // Basic response with bold and italic text
+        "I'm just a **mock AI**. In a *real implementation*, I would connect to an AI service.",
+
+        // Response with headings and lists
+        "# Here's Some Information\n\n" +
+        "That's an interesting question! Here are some key points:\n\n" +
+        "* Point one about the topic\n" +
+        "* Point two with some detail\n" +
+        "* Point three with **important** information\n\n" +
+        "## Further Reading\n" +
+        "You might want to explore these subtopics as well.",
+
+        // Response with code blocks
+        "Here's how you would implement this in Java:\n\n" +
+        "```java\n" +
+        "public class Example {\n" +
+        "    public static void main(String[] args) {\n" +
+        "        System.out.println(\"Hello, World!\");\n" +
+        "    }\n" +
+        "}\n" +
+        "```\n\n" +
+        "You can also use inline code like `String message = \"Hello\";`",
+
+        // Response with tables
+        "Here's a comparison of different approaches:\n\n" +
+        "| Feature | Approach A | Approach B | Approach C |\n" +
+        "|---------|------------|------------|------------|\n" +
+        "| Speed   | Fast       | Medium     | Slow       |\n" +
+        "| Memory  | High       | Low        | Medium     |\n" +
+        "| Cost    | Expensive  | Cheap      | Moderate   |\n\n" +
+        "Choose the approach that best fits your requirements.",
+
+        // Response with links and blockquotes
+        "You might find this resource helpful: [Spring Boot Documentation](https://docs.spring.io/spring-boot/docs/current/reference/html/).\n\n" +
+        "> Important note: Always refer to the official documentation for the most up-to-date information.\n\n" +
+        "Remember to check for the latest version on [GitHub](https://github.com/spring-projects/spring-boot).",
+
+        // Response with mixed elements
+        "# Analysis of Your Question\n\n" +
+        "Your question touches on several important aspects:\n\n" +
+        "1. **Primary considerations**\n" +
+        "   - Technical feasibility\n" +
+        "   - Cost implications\n" +
+        "   - Timeline constraints\n\n" +
+        "2. **Implementation options**\n\n" +
+        "```python\n" +
+        "def example_function():\n" +
+        "    return \"This is just an example\"\n" +
+        "```\n\n" +
+        "> Remember that the best solution depends on your specific context.\n\n" +
+        "For more information, visit [our documentation](https://example.com)."
+    );
+
+    private final SimulatedLatency firstTokenLatency;
+    private final double tokensPerSecond;
+    private final List<String[]> replies;
+
+    /**
+     * @param tokensPerSecond streaming rate; 0 or less sends the whole reply at once
+     */
+    public SimulatedChatModel(SimulatedLatency firstTokenLatency, double tokensPerSecond, List<String> replies) {
+        this.firstTokenLatency = firstTokenLatency;
+        this.tokensPerSecond = tokensPerSecond;
+        // Split after whitespace so the tokens concatenate back to the exact reply
+        this.replies = replies.stream().map(reply -> reply.split("(?<=\\s)(?=\\S)")).toList();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String[] tokens = pickReply();
+        Duration generation = tokensPerSecond > 0
+                ? Duration.ofNanos((long) (tokens.length / tokensPerSecond * 1e9))
+                : Duration.ZERO;
+        return Mono.delay(firstTokenLatency.sample().plus(generation))
+                .map(tick -> response(String.join("", tokens)))
+                .block();
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        String[] tokens = pickReply();
+        Flux<String> words = Flux.fromArray(tokens);
+        if (tokensPerSecond > 0) {
+            // The first token goes out as soon as the first-token delay is over
+            Duration interval = Duration.ofNanos((long) (1e9 / tokensPerSecond));
+            words = words.take(1).concatWith(words.skip(1).delayElements(interval));
+        }
+        return Mono.delay(firstTokenLatency.sample())
+                .thenMany(words.map(SimulatedChatModel::response));
+    }
+
+    private String[] pickReply() {
+        return replies.get(ThreadLocalRandom.current().nextInt(replies.size()));
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.chatservice.service;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How long {@link SimulatedChatModel} takes to produce its first token. Built from a spec string:
+ * <ul>
+ *   <li>{@code fixed:800ms} - always the same</li>
+ *   <li>{@code lognormal:800ms:0.5} - log-normal with the given median and sigma (the usual
+ *       shape of model latencies: most requests near the median, a long right tail)</li>
+ *   <li>{@code replay:/path/to/trace.csv} - drawn at random from recorded latencies, one per line
+ *       in the first column; bare numbers are milliseconds, {@code #} starts a comment</li>
+ * </ul>
+ */
+@FunctionalInterface
+public interface SimulatedLatency {
+
+    Duration sample();
+
+    static SimulatedLatency fixed(Duration latency) {
+        return () -> latency;
+    }
+
+    static SimulatedLatency logNormal(Duration median, double sigma) {
+        long medianNanos = median.toNanos();
+        return () -> Duration.ofNanos((long) (medianNanos * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian())));
+    }
+
+    static SimulatedLatency replay(List<Duration> samples) {
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("Latency trace has no samples");
+        }
+        Duration[] recorded = samples.toArray(Duration[]::new);
+        return () -> recorded[ThreadLocalRandom.current().nextInt(recorded.length)];
+    }
+
+    static SimulatedLatency parse(String spec) {
+        String[] parts = spec.trim().split(":", 2);
+        String argument = parts.length > 1 ? parts[1].trim() : "";
+        try {
+            switch (parts[0].trim().toLowerCase()) {
+                case "fixed":
+                    return fixed(duration(argument));
+                case "lognormal":
+                    int separator = argument.lastIndexOf(':');
+                    if (separator < 0) {
+                        throw new IllegalArgumentException("expected lognormal:<median>:<sigma>");
+                    }
+                    return logNormal(duration(argument.substring(0, separator)),
+                            Double.parseDouble(argument.substring(separator + 1).trim()));
+                case "replay":
+                    return replay(readTrace(Paths.get(argument)));
+                default:
+                    throw new IllegalArgumentException("unknown distribution " + parts[0]);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid simulated latency '" + spec + "': " + e.getMessage(), e);
+        }
+    }
+
+    private static List<Duration> readTrace(Path trace) throws IOException {
+        try (var lines = Files.lines(trace)) {
+            return lines.map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .map(line -> duration(line.split(",", 2)[0]))
+                    .toList();
+        }
+    }
+
+    private static Duration duration(String value) {
+        String trimmed = value.trim();
+        return trimmed.matches("\\d+(\\.\\d+)?")
+                ? Duration.ofNanos((long) (Double.parseDouble(trimmed) * 1_000_000))
+                : DurationStyle.detectAndParse(trimmed);
+    }
+}
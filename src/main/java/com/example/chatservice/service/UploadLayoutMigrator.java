@@ -0,0 +1,94 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Moves uploads from the old flat layout into the sharded blob store once the application is up:
+ * first blobs stored directly in {@code blobs/}, then files sitting directly in the upload
+ * directory, which also get a {@code stored_files} row. A legacy file's owner is taken from the
+ * conversation that has it attached, if any. Runs on its own daemon thread, one file at a time,
+ * and every file stays downloadable while it is moved.
+ */
+@Component
+public class UploadLayoutMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(UploadLayoutMigrator.class);
+
+    private final BlobStore blobStore;
+    private final FileStorageService fileStorageService;
+    private final ChatMessageRepository chatMessageRepository;
+    private final Path uploadPath;
+
+    @Value("${chat.files.migration.enabled:true}")
+    private boolean enabled;
+
+    public UploadLayoutMigrator(
+            BlobStore blobStore,
+            FileStorageService fileStorageService,
+            ChatMessageRepository chatMessageRepository,
+            @Value("${file.upload-dir:./uploads}") String uploadDir) {
+        this.blobStore = blobStore;
+        this.fileStorageService = fileStorageService;
+        this.chatMessageRepository = chatMessageRepository;
+        this.uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            logger.info("Upload layout migration disabled");
+            return;
+        }
+        Thread thread = new Thread(this::migrateAll, "upload-layout-migrator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void migrateAll() {
+        try {
+            int blobs = blobStore.relocateFlatBlobs();
+            if (blobs > 0) {
+                logger.info("Moved {} blobs into sharded directories", blobs);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to move flat blobs into sharded directories", e);
+        }
+
+        int files = 0;
+        int failed = 0;
+        // Streamed, so a directory with millions of entries is never listed into memory at once
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(uploadPath,
+                entry -> Files.isRegularFile(entry) && !entry.getFileName().toString().startsWith("."))) {
+            for (Path entry : entries) {
+                String fileName = entry.getFileName().toString();
+                try {
+                    Long ownerId = chatMessageRepository.findAttachmentOwner(fileName);
+                    if (fileStorageService.adoptLegacyFile(fileName, ownerId)) {
+                        files++;
+                    }
+                } catch (Exception e) {
+                    // Still served from the flat directory; retried on the next start
+                    failed++;
+                    logger.error("Failed to migrate legacy upload {}", fileName, e);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to list legacy uploads in {}", uploadPath, e);
+        }
+
+        if (files > 0 || failed > 0) {
+            logger.info("Upload layout migration finished: {} files moved, {} failed", files, failed);
+        }
+    }
+}
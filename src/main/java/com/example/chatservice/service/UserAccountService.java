@@ -0,0 +1,59 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.model.User;
+import com.example.chatservice.repository.ChatMessageRepository;
+import com.example.chatservice.repository.UserRepository;
+import com.example.chatservice.security.RevokedUserRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Account lifecycle operations. Disabling or deleting a user also revokes their outstanding JWTs,
+ * since requests are authenticated from token claims alone.
+ */
+@Service
+public class UserAccountService {
+
+    private final UserRepository userRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final RevokedUserRegistry revokedUserRegistry;
+
+    public UserAccountService(
+            UserRepository userRepository,
+            ChatMessageRepository chatMessageRepository,
+            RevokedUserRegistry revokedUserRegistry) {
+        this.userRepository = userRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.revokedUserRegistry = revokedUserRegistry;
+    }
+
+    @Transactional
+    public void disableUser(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        user.setEnabled(false);
+        userRepository.save(user);
+        revokedUserRegistry.revoke(userId);
+    }
+
+    @Transactional
+    public void enableUser(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        user.setEnabled(true);
+        userRepository.save(user);
+    }
+
+    @Transactional
+    public void deleteUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+        revokedUserRegistry.revoke(userId);
+        // Conversations cascade from the user; their message rows have to go explicitly
+        chatMessageRepository.deleteByUserId(userId);
+        userRepository.deleteById(userId);
+    }
+}
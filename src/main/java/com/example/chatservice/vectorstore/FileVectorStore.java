@@ -0,0 +1,635 @@
+package com.example.chatservice.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A durable {@link VectorStore} kept in a directory on local disk, so documents are embedded once
+ * and survive restarts.
+ * <p>
+ * Layout:
+ * <ul>
+ *   <li>{@code vectors.f32} - fixed-size slots of {@code dimension} little-endian floats, memory
+ *       mapped in segments. Vectors are normalized on write, so cosine similarity is a dot product.</li>
+ *   <li>{@code documents.jsonl} - append-only log of {@code add}/{@code delete} records carrying the
+ *       slot, id, text and metadata. A record is only appended after its vector has been forced to
+ *       disk, and each batch of records is forced before {@code add}/{@code delete} returns, so the
+ *       log is the commit point. A torn record left by a crash is cut off when the store is opened.</li>
+ * </ul>
+ * Opening the store replays the log (no re-embedding) and maps the vector file. When more than
+ * half of the slots belong to deleted documents, both files are compacted on open: they are
+ * rewritten into a new generation directory ({@code gen-N}) that is renamed into place in one
+ * atomic step, so a crash never pairs a compacted vector file with an uncompacted log. The newest
+ * complete generation wins on open; the files of a store that was never compacted sit directly in
+ * the store directory (generation 0).
+ * Searches run under a read lock and may proceed concurrently; adds and deletes take the write lock.
+ */
+public class FileVectorStore implements VectorStore, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FileVectorStore.class);
+
+    static final String VECTORS_FILE = "vectors.f32";
+    static final String LOG_FILE = "documents.jsonl";
+    private static final int SEGMENT_SLOTS = 16_384;
+    private static final int COMPACTION_MIN_DELETED = 1_000;
+    private static final String GENERATION_PREFIX = "gen-";
+    private static final String INCOMPLETE_SUFFIX = ".tmp";
+
+    private static final class Entry {
+        final String id;
+        final String text;
+        final Map<String, Object> metadata;
+
+        Entry(String id, String text, Map<String, Object> metadata) {
+            this.id = id;
+            this.text = text;
+            this.metadata = metadata;
+        }
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final Path directory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int generation;
+    private Path dataDirectory;
+    private int dimension;
+    private FileChannel vectorsChannel;
+    private final List<MappedByteBuffer> mappedSegments = new ArrayList<>();
+    private final List<FloatBuffer> segments = new ArrayList<>();
+    private final List<Entry> slots = new ArrayList<>();
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private FileChannel logChannel;
+    private BufferedWriter log;
+
+    public FileVectorStore(EmbeddingModel embeddingModel, Path directory) {
+        this.embeddingModel = embeddingModel;
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            long start = System.nanoTime();
+            openGeneration();
+            replayLog();
+            if (shouldCompact()) {
+                compact();
+            }
+            openFiles();
+            logger.info("Opened vector store at {} with {} documents in {} ms",
+                    directory, size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open vector store at " + directory, e);
+        }
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        // Embed outside the lock; this is by far the slowest part
+        List<String> texts = documents.stream().map(Document::getText).toList();
+        add(documents, embeddingModel.embed(texts));
+    }
+
+    /**
+     * Stores documents whose embeddings the caller has already computed.
+     */
+    void add(List<Document> documents, List<float[]> embeddings) {
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (dimension == 0) {
+                dimension = embeddings.get(0).length;
+                appendLog(Map.of("op", "init", "dimension", dimension));
+            }
+
+            List<Map<String, Object>> records = new ArrayList<>(documents.size());
+            int firstSegment = slots.size() / SEGMENT_SLOTS;
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                float[] embedding = embeddings.get(i);
+                if (embedding.length != dimension) {
+                    throw new IllegalStateException("Embedding dimension " + embedding.length
+                            + " does not match store dimension " + dimension);
+                }
+
+                String id = document.getId() != null ? document.getId() : UUID.randomUUID().toString();
+                Integer previous = slotsById.get(id);
+                if (previous != null) {
+                    // Re-adding an id replaces the document
+                    slots.set(previous, null);
+                    records.add(Map.of("op", "delete", "id", id));
+                }
+
+                int slot = slots.size();
+                writeVector(slot, normalize(embedding));
+                Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+                slots.add(new Entry(id, document.getText(), metadata));
+                slotsById.put(id, slot);
+
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("op", "add");
+                record.put("slot", slot);
+                record.put("id", id);
+                record.put("text", document.getText());
+                record.put("metadata", metadata);
+                records.add(record);
+            }
+
+            // Vectors first, then the log records that make them visible after a restart. Writes
+            // through a mapping only reach the disk when the mapping itself is forced
+            for (int segment = firstSegment; segment < mappedSegments.size(); segment++) {
+                mappedSegments.get(segment).force();
+            }
+            for (Map<String, Object> record : records) {
+                appendLog(record);
+            }
+            syncLog();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to vector store at " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idList) {
+                Integer slot = slotsById.remove(id);
+                if (slot != null) {
+                    slots.set(slot, null);
+                    appendLog(Map.of("op", "delete", "id", id));
+                }
+            }
+            syncLog();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to vector store at " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        List<String> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Entry entry : slots) {
+                if (entry != null && MetadataFilter.matches(filterExpression, entry.metadata)) {
+                    ids.add(entry.id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        delete(ids);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        int topK = request.getTopK();
+        if (topK <= 0) {
+            return new ArrayList<>();
+        }
+        float[] query = normalize(embeddingModel.embed(request.getQuery()));
+        Filter.Expression filter = request.hasFilterExpression() ? request.getFilterExpression() : null;
+        double threshold = request.getSimilarityThreshold();
+
+        // Min-heap of the best topK (similarity, slot) pairs seen so far
+        PriorityQueue<double[]> best = new PriorityQueue<>(topK + 1, (a, b) -> Double.compare(a[0], b[0]));
+        List<Document> results = new ArrayList<>(topK);
+        lock.readLock().lock();
+        try {
+            if (dimension == 0) {
+                return results;
+            }
+            if (query.length != dimension) {
+                throw new IllegalStateException("Query dimension " + query.length
+                        + " does not match store dimension " + dimension);
+            }
+
+            for (int slot = 0; slot < slots.size(); slot++) {
+                Entry entry = slots.get(slot);
+                if (entry == null || (filter != null && !MetadataFilter.matches(filter, entry.metadata))) {
+                    continue;
+                }
+                double similarity = dot(query, slot);
+                if (similarity < threshold) {
+                    continue;
+                }
+                if (best.size() < topK) {
+                    best.add(new double[]{similarity, slot});
+                } else if (similarity > best.peek()[0]) {
+                    best.poll();
+                    best.add(new double[]{similarity, slot});
+                }
+            }
+
+            while (!best.isEmpty()) {
+                double[] hit = best.poll();
+                Entry entry = slots.get((int) hit[1]);
+                Map<String, Object> metadata = new HashMap<>(entry.metadata);
+                metadata.put("distance", 1.0 - hit[0]);
+                results.add(new Document(entry.id, entry.text, metadata));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // The heap drains worst first
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Number of live documents.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether any live document has the given metadata value, e.g. to skip re-ingesting a source.
+     */
+    public boolean containsMetadata(String key, Object value) {
+        return containsMetadata(Map.of(key, value));
+    }
+
+    /**
+     * Whether any live document has all of the given metadata values. Numbers compare by value,
+     * so a {@code Long} matches the {@code Integer} read back from the log.
+     */
+    public boolean containsMetadata(Map<String, Object> values) {
+        lock.readLock().lock();
+        try {
+            for (Entry entry : slots) {
+                if (entry != null && matchesAll(entry.metadata, values)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    interface EntryVisitor {
+        void visit(String id, String text, Map<String, Object> metadata, float[] vector);
+    }
+
+    /**
+     * Visits every live document with a copy of its (normalized) vector, in slot order.
+     */
+    void forEach(EntryVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < slots.size(); slot++) {
+                Entry entry = slots.get(slot);
+                if (entry == null) {
+                    continue;
+                }
+                float[] vector = new float[dimension];
+                segments.get(slot / SEGMENT_SLOTS).get((slot % SEGMENT_SLOTS) * dimension, vector);
+                visitor.visit(entry.id, entry.text, entry.metadata, vector);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (log != null) {
+                log.close();
+            }
+            if (vectorsChannel != null) {
+                for (MappedByteBuffer segment : mappedSegments) {
+                    segment.force();
+                }
+                vectorsChannel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Picks the newest complete generation and removes anything left behind by an earlier
+     * compaction: older generations and unfinished ones.
+     */
+    private void openGeneration() throws IOException {
+        generation = 0;
+        List<Path> leftovers = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : entries.toList()) {
+                String name = entry.getFileName().toString();
+                if (!name.startsWith(GENERATION_PREFIX) || !Files.isDirectory(entry)) {
+                    continue;
+                }
+                int number = name.endsWith(INCOMPLETE_SUFFIX) ? -1 : parseGeneration(name);
+                if (number > generation) {
+                    if (generation > 0) {
+                        leftovers.add(generationDirectory(generation));
+                    }
+                    generation = number;
+                } else {
+                    leftovers.add(entry);
+                }
+            }
+        }
+        dataDirectory = generationDirectory(generation);
+
+        if (generation > 0) {
+            // The uncompacted files of generation 0
+            Files.deleteIfExists(directory.resolve(VECTORS_FILE));
+            Files.deleteIfExists(directory.resolve(LOG_FILE));
+        }
+        for (Path leftover : leftovers) {
+            deleteGeneration(leftover);
+        }
+    }
+
+    private static int parseGeneration(String name) {
+        try {
+            return Integer.parseInt(name.substring(GENERATION_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Path generationDirectory(int number) {
+        return number == 0 ? directory : directory.resolve(GENERATION_PREFIX + number);
+    }
+
+    private void deleteGeneration(Path generationDirectory) throws IOException {
+        if (generationDirectory.equals(directory)) {
+            Files.deleteIfExists(directory.resolve(VECTORS_FILE));
+            Files.deleteIfExists(directory.resolve(LOG_FILE));
+            return;
+        }
+        try (Stream<Path> files = Files.list(generationDirectory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(generationDirectory);
+    }
+
+    /**
+     * Applies every complete record of the log, then cuts the log back to the end of the last one
+     * so records appended from now on don't follow a torn line.
+     */
+    private void replayLog() throws IOException {
+        Path logPath = dataDirectory.resolve(LOG_FILE);
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        long validLength = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(logPath))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = line.toString(StandardCharsets.UTF_8).strip();
+                line.reset();
+                if (!text.isEmpty()) {
+                    Map<String, Object> record;
+                    try {
+                        record = objectMapper.readValue(text, new TypeReference<Map<String, Object>>() {});
+                    } catch (IOException e) {
+                        // A torn record from a crash; everything before it is intact
+                        logger.warn("Ignoring unreadable vector store log record: {}", e.getMessage());
+                        break;
+                    }
+                    applyRecord(record);
+                }
+                validLength = offset;
+            }
+        }
+
+        // Whatever follows the last complete record, including a final line that never got its
+        // newline, was not committed
+        if (validLength < Files.size(logPath)) {
+            logger.warn("Truncating vector store log {} from {} to {} bytes", logPath, Files.size(logPath), validLength);
+            try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyRecord(Map<String, Object> record) {
+        switch (String.valueOf(record.get("op"))) {
+            case "init" -> dimension = ((Number) record.get("dimension")).intValue();
+            case "add" -> {
+                int slot = ((Number) record.get("slot")).intValue();
+                String id = (String) record.get("id");
+                while (slots.size() <= slot) {
+                    slots.add(null);
+                }
+                Map<String, Object> metadata = (Map<String, Object>) record.getOrDefault("metadata", Map.of());
+                slots.set(slot, new Entry(id, (String) record.get("text"), new HashMap<>(metadata)));
+                slotsById.put(id, slot);
+            }
+            case "delete" -> {
+                Integer slot = slotsById.remove((String) record.get("id"));
+                if (slot != null) {
+                    slots.set(slot, null);
+                }
+            }
+            default -> logger.warn("Ignoring unknown vector store log record: {}", record.get("op"));
+        }
+    }
+
+    private boolean shouldCompact() {
+        int deleted = slots.size() - slotsById.size();
+        return deleted >= COMPACTION_MIN_DELETED && deleted > slotsById.size();
+    }
+
+    /**
+     * Rewrites both files with only the live documents into the next generation, then switches to
+     * it with a single directory rename.
+     */
+    private void compact() throws IOException {
+        Path previous = dataDirectory;
+        Path next = generationDirectory(generation + 1);
+        Path incomplete = directory.resolve(next.getFileName() + INCOMPLETE_SUFFIX);
+        Files.createDirectories(incomplete);
+        long bytesPerSlot = (long) dimension * Float.BYTES;
+
+        List<Entry> live = new ArrayList<>(slotsById.size());
+        try (FileChannel source = FileChannel.open(previous.resolve(VECTORS_FILE), StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(incomplete.resolve(VECTORS_FILE), StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             FileChannel logChannel = FileChannel.open(incomplete.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             BufferedWriter writer = new BufferedWriter(Channels.newWriter(logChannel, StandardCharsets.UTF_8))) {
+            writer.write(objectMapper.writeValueAsString(Map.of("op", "init", "dimension", dimension)));
+            writer.newLine();
+            for (int slot = 0; slot < slots.size(); slot++) {
+                Entry entry = slots.get(slot);
+                if (entry == null) {
+                    continue;
+                }
+                source.transferTo(slot * bytesPerSlot, bytesPerSlot, target);
+
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("op", "add");
+                record.put("slot", live.size());
+                record.put("id", entry.id);
+                record.put("text", entry.text);
+                record.put("metadata", entry.metadata);
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+                live.add(entry);
+            }
+            writer.flush();
+            target.force(true);
+            logChannel.force(true);
+        }
+
+        // The commit point: until this rename the previous generation is the one opened
+        Files.move(incomplete, next, StandardCopyOption.ATOMIC_MOVE);
+        generation++;
+        dataDirectory = next;
+        deleteGeneration(previous);
+
+        logger.info("Compacted vector store at {}: {} -> {} slots", directory, slots.size(), live.size());
+        slots.clear();
+        slotsById.clear();
+        for (Entry entry : live) {
+            slotsById.put(entry.id, slots.size());
+            slots.add(entry);
+        }
+    }
+
+    private void openFiles() throws IOException {
+        vectorsChannel = FileChannel.open(dataDirectory.resolve(VECTORS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (dimension > 0) {
+            for (int segment = 0; segment * SEGMENT_SLOTS < slots.size(); segment++) {
+                mapSegment(segment);
+            }
+        }
+        logChannel = FileChannel.open(dataDirectory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log = new BufferedWriter(Channels.newWriter(logChannel, StandardCharsets.UTF_8));
+    }
+
+    private void mapSegment(int segment) throws IOException {
+        long segmentBytes = (long) SEGMENT_SLOTS * dimension * Float.BYTES;
+        MappedByteBuffer buffer = vectorsChannel.map(FileChannel.MapMode.READ_WRITE, segment * segmentBytes, segmentBytes);
+        mappedSegments.add(buffer);
+        segments.add(buffer.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+    }
+
+    private void writeVector(int slot, float[] vector) throws IOException {
+        int segment = slot / SEGMENT_SLOTS;
+        while (segments.size() <= segment) {
+            mapSegment(segments.size());
+        }
+        segments.get(segment).put((slot % SEGMENT_SLOTS) * dimension, vector);
+    }
+
+    private double dot(float[] query, int slot) {
+        FloatBuffer segment = segments.get(slot / SEGMENT_SLOTS);
+        int offset = (slot % SEGMENT_SLOTS) * dimension;
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * segment.get(offset + i);
+        }
+        return sum;
+    }
+
+    private void appendLog(Map<String, Object> record) throws IOException {
+        log.write(objectMapper.writeValueAsString(record));
+        log.write('\n');
+    }
+
+    /**
+     * Pushes the appended records to disk; until then a crash may lose them.
+     */
+    private void syncLog() throws IOException {
+        log.flush();
+        logChannel.force(false);
+    }
+
+    private static boolean matchesAll(Map<String, Object> metadata, Map<String, Object> values) {
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            if (!MetadataFilter.equal(metadata.get(value.getKey()), value.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+}
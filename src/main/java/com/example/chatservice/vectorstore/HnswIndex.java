@@ -0,0 +1,494 @@
+package com.example.chatservice.vectorstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph (Malkov and Yashunin) over normalized vectors, scored
+ * by dot product. Each node carries a payload of type {@code T}.
+ * <p>
+ * Inserts may run concurrently with each other and with searches. Nodes are published before
+ * they are linked, and every neighbor list is an immutable {@code int[]} replaced under the owning
+ * node's monitor, so a search always sees a consistent (if slightly stale) list without locking.
+ * Removal only tombstones a node: it stays in the graph for navigation but is never returned.
+ */
+final class HnswIndex<T> {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int MAX_PAGES = 1 << 16;
+
+    record Result<T>(int node, T payload, double similarity) {
+    }
+
+    private record EntryPoint(int node, int level) {
+    }
+
+    private static final class Node<T> {
+        final float[] vector;
+        final T payload;
+        final AtomicReferenceArray<int[]> neighbors;
+        volatile boolean deleted;
+
+        Node(float[] vector, T payload, int level) {
+            this.vector = vector;
+            this.payload = payload;
+            this.neighbors = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbors.set(i, new int[0]);
+            }
+        }
+
+        int level() {
+            return neighbors.length() - 1;
+        }
+    }
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<Node<T>>> pages = new AtomicReferenceArray<>(MAX_PAGES);
+    private final AtomicInteger nextNode = new AtomicInteger();
+    private final AtomicInteger dimension = new AtomicInteger();
+    private final AtomicInteger deletedCount = new AtomicInteger();
+    private final Object entryLock = new Object();
+    private volatile EntryPoint entryPoint;
+
+    // Shared rather than per thread: searches run on virtual threads, and each set holds a mark per
+    // node. More searches than this in flight allocate a set and drop it afterwards
+    private final BlockingQueue<VisitedSet> visitedSets =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    HnswIndex(int m, int efConstruction) {
+        if (m < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException("HNSW needs m >= 2 and efConstruction >= 1");
+        }
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    /**
+     * Inserts a vector and returns its node number. The vector is normalized into a private copy.
+     */
+    int add(float[] vector, T payload) {
+        if (!dimension.compareAndSet(0, vector.length) && dimension.get() != vector.length) {
+            throw new IllegalArgumentException("Vector dimension " + vector.length
+                    + " does not match index dimension " + dimension.get());
+        }
+
+        float[] normalized = FileVectorStore.normalize(vector);
+        int level = randomLevel();
+        Node<T> node = new Node<>(normalized, payload, level);
+        int id = nextNode.getAndIncrement();
+        store(id, node);
+
+        EntryPoint entry;
+        synchronized (entryLock) {
+            entry = entryPoint;
+            if (entry == null) {
+                entryPoint = new EntryPoint(id, level);
+                return id;
+            }
+        }
+
+        int current = entry.node();
+        for (int layer = entry.level(); layer > level; layer--) {
+            current = greedyClosest(normalized, current, layer);
+        }
+
+        for (int layer = Math.min(level, entry.level()); layer >= 0; layer--) {
+            ScoredHeap candidates = searchLayer(normalized, current, efConstruction, layer, null, Integer.MAX_VALUE);
+            int[] selected = selectNeighbors(normalized, candidates.drainDescending(), m);
+            node.neighbors.set(layer, selected);
+            for (int neighbor : selected) {
+                link(neighbor, id, layer);
+            }
+            if (selected.length > 0) {
+                current = selected[0];
+            }
+        }
+
+        if (level > entry.level()) {
+            synchronized (entryLock) {
+                if (level > entryPoint.level()) {
+                    entryPoint = new EntryPoint(id, level);
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Returns up to {@code k} accepted nodes most similar to the query, best first.
+     * <p>
+     * A selective filter leaves the graph search short of {@code ef} results, and it would then
+     * walk every reachable node. Instead the walk gives up after passing over about as many
+     * rejected nodes as an unfiltered search evaluates in total, and the query is answered by an
+     * exact scan of the accepted nodes, which for such a filter is the cheaper plan.
+     *
+     * @param ef     size of the dynamic candidate list; larger is slower and more accurate
+     * @param accept extra filter on node numbers, or {@code null}
+     */
+    List<Result<T>> search(float[] query, int k, int ef, IntPredicate accept) {
+        EntryPoint entry = entryPoint;
+        if (entry == null || k <= 0) {
+            return List.of();
+        }
+        if (query.length != dimension.get()) {
+            throw new IllegalArgumentException("Query dimension " + query.length
+                    + " does not match index dimension " + dimension.get());
+        }
+
+        float[] normalized = FileVectorStore.normalize(query);
+        int current = entry.node();
+        for (int layer = entry.level(); layer > 0; layer--) {
+            current = greedyClosest(normalized, current, layer);
+        }
+
+        IntPredicate live = node -> !node(node).deleted && (accept == null || accept.test(node));
+        int candidates = Math.max(ef, k);
+        ScoredHeap found = searchLayer(normalized, current, candidates, 0, live, candidates * maxM0);
+        if (found == null) {
+            found = exactSearch(normalized, k, live);
+        }
+        int[] nodes = found.drainDescending();
+        List<Result<T>> results = new ArrayList<>(Math.min(k, nodes.length));
+        for (int i = 0; i < nodes.length && results.size() < k; i++) {
+            Node<T> node = node(nodes[i]);
+            results.add(new Result<>(nodes[i], node.payload, dot(normalized, node.vector)));
+        }
+        return results;
+    }
+
+    T payload(int node) {
+        return node(node).payload;
+    }
+
+    void remove(int node) {
+        Node<T> target = node(node);
+        if (!target.deleted) {
+            target.deleted = true;
+            deletedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Number of live (not removed) nodes.
+     */
+    int size() {
+        return nextNode.get() - deletedCount.get();
+    }
+
+    private void store(int id, Node<T> node) {
+        int page = id >>> PAGE_BITS;
+        if (page >= MAX_PAGES) {
+            throw new IllegalStateException("HNSW index is full");
+        }
+        AtomicReferenceArray<Node<T>> nodes = pages.get(page);
+        if (nodes == null) {
+            pages.compareAndSet(page, null, new AtomicReferenceArray<>(PAGE_SIZE));
+            nodes = pages.get(page);
+        }
+        nodes.set(id & (PAGE_SIZE - 1), node);
+    }
+
+    private Node<T> node(int id) {
+        return pages.get(id >>> PAGE_BITS).get(id & (PAGE_SIZE - 1));
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(uniform) * levelMultiplier);
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        double best = dot(query, node(current).vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : neighbors(current, layer)) {
+                double similarity = dot(query, node(neighbor).vector);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer. Every reachable node is traversed, but only nodes passing
+     * {@code accept} make it into the returned heap of at most {@code ef} results. Returns null
+     * once more than {@code rejectBudget} visited nodes have failed {@code accept}.
+     */
+    private ScoredHeap searchLayer(float[] query, int start, int ef, int layer, IntPredicate accept, int rejectBudget) {
+        VisitedSet visited = visitedSets.poll();
+        if (visited == null) {
+            visited = new VisitedSet();
+        }
+        try {
+            return searchLayer(query, start, ef, layer, accept, rejectBudget, visited);
+        } finally {
+            visitedSets.offer(visited);
+        }
+    }
+
+    private ScoredHeap searchLayer(float[] query, int start, int ef, int layer, IntPredicate accept, int rejectBudget,
+                                   VisitedSet visited) {
+        visited.reset(nextNode.get());
+
+        ScoredHeap candidates = new ScoredHeap(ef * 2);
+        ScoredHeap results = new ScoredHeap(ef + 1);
+
+        double startSimilarity = dot(query, node(start).vector);
+        visited.visit(start);
+        // candidates is a min-heap of negated similarities, i.e. a max-heap of similarities
+        candidates.push(start, -startSimilarity);
+        int rejected = 0;
+        if (accept == null || accept.test(start)) {
+            results.push(start, startSimilarity);
+        } else {
+            rejected++;
+        }
+
+        while (candidates.size() > 0) {
+            double similarity = -candidates.peekScore();
+            if (results.size() >= ef && similarity < results.peekScore()) {
+                break;
+            }
+            int current = candidates.pop();
+
+            for (int neighbor : neighbors(current, layer)) {
+                if (!visited.visit(neighbor)) {
+                    continue;
+                }
+                double neighborSimilarity = dot(query, node(neighbor).vector);
+                if (results.size() < ef || neighborSimilarity > results.peekScore()) {
+                    candidates.push(neighbor, -neighborSimilarity);
+                    if (accept == null || accept.test(neighbor)) {
+                        results.push(neighbor, neighborSimilarity);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    } else if (++rejected > rejectBudget) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Scores every accepted node, keeping the best {@code k}.
+     */
+    private ScoredHeap exactSearch(float[] query, int k, IntPredicate accept) {
+        ScoredHeap best = new ScoredHeap(k + 1);
+        int count = nextNode.get();
+        for (int id = 0; id < count; id++) {
+            AtomicReferenceArray<Node<T>> page = pages.get(id >>> PAGE_BITS);
+            // Reserved by a concurrent insert but not yet published
+            if (page == null || page.get(id & (PAGE_SIZE - 1)) == null || !accept.test(id)) {
+                continue;
+            }
+            double similarity = dot(query, node(id).vector);
+            if (best.size() < k) {
+                best.push(id, similarity);
+            } else if (similarity > best.peekScore()) {
+                best.pop();
+                best.push(id, similarity);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Neighbor selection heuristic (algorithm 4 of the paper): a candidate is kept only if it is
+     * closer to the base vector than to every neighbor already kept, which keeps links spread
+     * across clusters instead of all pointing into the nearest one.
+     */
+    private int[] selectNeighbors(float[] base, int[] candidatesDescending, int limit) {
+        int[] selected = new int[Math.min(limit, candidatesDescending.length)];
+        int count = 0;
+        for (int candidate : candidatesDescending) {
+            if (count == selected.length) {
+                break;
+            }
+            float[] vector = node(candidate).vector;
+            if (vector == base) {
+                continue;
+            }
+            double similarity = dot(base, vector);
+            boolean keep = true;
+            for (int i = 0; i < count; i++) {
+                if (dot(vector, node(selected[i]).vector) > similarity) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate;
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private void link(int from, int to, int layer) {
+        Node<T> node = node(from);
+        int maxConnections = layer == 0 ? maxM0 : m;
+        synchronized (node) {
+            int[] current = node.neighbors.get(layer);
+            if (current.length < maxConnections) {
+                int[] extended = Arrays.copyOf(current, current.length + 1);
+                extended[current.length] = to;
+                node.neighbors.set(layer, extended);
+                return;
+            }
+
+            // Full: re-select among the existing neighbors plus the new one
+            ScoredHeap candidates = new ScoredHeap(current.length + 1);
+            for (int neighbor : current) {
+                candidates.push(neighbor, dot(node.vector, node(neighbor).vector));
+            }
+            candidates.push(to, dot(node.vector, node(to).vector));
+            node.neighbors.set(layer, selectNeighbors(node.vector, candidates.drainDescending(), maxConnections));
+        }
+    }
+
+    private int[] neighbors(int node, int layer) {
+        Node<T> target = node(node);
+        return layer <= target.level() ? target.neighbors.get(layer) : new int[0];
+    }
+
+    static double dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Binary min-heap of (node, score) pairs in parallel primitive arrays.
+     */
+    private static final class ScoredHeap {
+        private int[] nodes;
+        private double[] scores;
+        private int size;
+
+        ScoredHeap(int capacity) {
+            nodes = new int[Math.max(capacity, 4)];
+            scores = new double[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        double peekScore() {
+            return scores[0];
+        }
+
+        void push(int node, double score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            double lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] < scores[child]) {
+                    child++;
+                }
+                if (scores[child] >= lastScore) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        /**
+         * Empties the heap, returning its nodes highest score first.
+         */
+        int[] drainDescending() {
+            int[] drained = new int[size];
+            for (int i = drained.length - 1; i >= 0; i--) {
+                drained[i] = pop();
+            }
+            return drained;
+        }
+    }
+
+    /**
+     * Visited marks for one search at a time, reset in O(1) by bumping a generation counter.
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[PAGE_SIZE];
+        private int generation;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == 0) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * Marks the node, returning false if it was already visited.
+         */
+        boolean visit(int node) {
+            if (node >= marks.length) {
+                // Inserted after reset by a concurrent writer
+                marks = Arrays.copyOf(marks, Math.max(node + 1, marks.length * 2));
+            }
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.chatservice.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * A {@link VectorStore} answering searches from an in-memory HNSW graph instead of a linear scan,
+ * so retrieval latency stays roughly logarithmic in corpus size.
+ * <p>
+ * When given a {@link FileVectorStore}, that store stays the durable copy: writes go to it first
+ * and the graph is rebuilt from its vectors on startup, without calling the embedding model.
+ * Searches are approximate; {@code efSearch} trades latency for recall.
+ */
+public class HnswVectorStore implements VectorStore {
+    private static final Logger logger = LoggerFactory.getLogger(HnswVectorStore.class);
+
+    private record Entry(String id, String text, Map<String, Object> metadata) {
+    }
+
+    private record StoredVector(Entry entry, float[] vector) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final FileVectorStore backingStore;
+    private final HnswIndex<Entry> index;
+    private final int efSearch;
+    private final Map<String, Integer> nodesById = new ConcurrentHashMap<>();
+
+    /**
+     * @param backingStore   durable store to load from and write through to, or {@code null} for a
+     *                       purely in-memory index
+     * @param m              links per node and layer (twice that on the bottom layer)
+     * @param efConstruction candidate list size while inserting
+     * @param efSearch       default candidate list size while searching
+     */
+    public HnswVectorStore(EmbeddingModel embeddingModel, FileVectorStore backingStore,
+                           int m, int efConstruction, int efSearch) {
+        this.embeddingModel = embeddingModel;
+        this.backingStore = backingStore;
+        this.index = new HnswIndex<>(m, efConstruction);
+        this.efSearch = efSearch;
+
+        if (backingStore != null) {
+            long start = System.nanoTime();
+            List<StoredVector> stored = new ArrayList<>(backingStore.size());
+            backingStore.forEach((id, text, metadata, vector) ->
+                    stored.add(new StoredVector(new Entry(id, text, metadata), vector)));
+            // The index takes concurrent inserts, so build it on all cores
+            stored.parallelStream().forEach(item -> insert(item.entry(), item.vector()));
+            logger.info("Built HNSW index over {} documents in {} ms",
+                    stored.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        List<float[]> embeddings = embeddingModel.embed(documents.stream().map(Document::getText).toList());
+        if (backingStore != null) {
+            backingStore.add(documents, embeddings);
+        }
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            insert(new Entry(document.getId(), document.getText(), new HashMap<>(document.getMetadata())),
+                    embeddings.get(i));
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        if (backingStore != null) {
+            backingStore.delete(idList);
+        }
+        for (String id : idList) {
+            Integer node = nodesById.remove(id);
+            if (node != null) {
+                index.remove(node);
+            }
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        List<String> ids = new ArrayList<>();
+        for (Integer node : nodesById.values()) {
+            Entry entry = index.payload(node);
+            if (MetadataFilter.matches(filterExpression, entry.metadata())) {
+                ids.add(entry.id());
+            }
+        }
+        delete(ids);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return similaritySearch(request, efSearch);
+    }
+
+    /**
+     * Searches with an explicit candidate list size instead of the configured {@code efSearch}.
+     */
+    public List<Document> similaritySearch(SearchRequest request, int ef) {
+        float[] query = embeddingModel.embed(request.getQuery());
+        Filter.Expression filter = request.hasFilterExpression() ? request.getFilterExpression() : null;
+        IntPredicate accept = filter == null
+                ? null
+                : node -> MetadataFilter.matches(filter, index.payload(node).metadata());
+
+        List<HnswIndex.Result<Entry>> hits = index.search(query, request.getTopK(), ef, accept);
+
+        List<Document> results = new ArrayList<>(hits.size());
+        for (HnswIndex.Result<Entry> hit : hits) {
+            if (hit.similarity() < request.getSimilarityThreshold()) {
+                break;
+            }
+            Entry entry = hit.payload();
+            Map<String, Object> metadata = new HashMap<>(entry.metadata());
+            metadata.put("distance", 1.0 - hit.similarity());
+            results.add(new Document(entry.id(), entry.text(), metadata));
+        }
+        return results;
+    }
+
+    /**
+     * Number of live documents.
+     */
+    public int size() {
+        return nodesById.size();
+    }
+
+    private void insert(Entry entry, float[] vector) {
+        int node = index.add(vector, entry);
+        Integer previous = nodesById.put(entry.id(), node);
+        if (previous != null) {
+            index.remove(previous);
+        }
+    }
+}
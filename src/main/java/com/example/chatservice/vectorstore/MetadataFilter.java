@@ -0,0 +1,104 @@
+package com.example.chatservice.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Evaluates a portable {@link Filter.Expression} against a document's metadata map.
+ */
+final class MetadataFilter {
+
+    private MetadataFilter() {
+    }
+
+    static boolean matches(Filter.Expression expression, Map<String, Object> metadata) {
+        if (expression == null) {
+            return true;
+        }
+        return switch (expression.type()) {
+            case AND -> test(expression.left(), metadata) && test(expression.right(), metadata);
+            case OR -> test(expression.left(), metadata) || test(expression.right(), metadata);
+            case NOT -> !test(expression.left(), metadata);
+            case EQ -> equal(value(expression.left(), metadata), literal(expression.right()));
+            case NE -> !equal(value(expression.left(), metadata), literal(expression.right()));
+            case GT -> range(value(expression.left(), metadata), literal(expression.right()), c -> c > 0);
+            case GTE -> range(value(expression.left(), metadata), literal(expression.right()), c -> c >= 0);
+            case LT -> range(value(expression.left(), metadata), literal(expression.right()), c -> c < 0);
+            case LTE -> range(value(expression.left(), metadata), literal(expression.right()), c -> c <= 0);
+            case IN -> contains(literal(expression.right()), value(expression.left(), metadata));
+            case NIN -> !contains(literal(expression.right()), value(expression.left(), metadata));
+            default -> throw new UnsupportedOperationException("Unsupported filter operator " + expression.type());
+        };
+    }
+
+    private static boolean test(Filter.Operand operand, Map<String, Object> metadata) {
+        if (operand instanceof Filter.Expression expression) {
+            return matches(expression, metadata);
+        }
+        if (operand instanceof Filter.Group group) {
+            return matches(group.content(), metadata);
+        }
+        throw new IllegalArgumentException("Expected an expression but got " + operand);
+    }
+
+    private static Object value(Filter.Operand operand, Map<String, Object> metadata) {
+        if (operand instanceof Filter.Key key) {
+            String name = key.key();
+            // Keys containing special characters arrive quoted
+            if (name.length() > 1 && (name.startsWith("'") || name.startsWith("\""))) {
+                name = name.substring(1, name.length() - 1);
+            }
+            return metadata.get(name);
+        }
+        throw new IllegalArgumentException("Expected a metadata key but got " + operand);
+    }
+
+    private static Object literal(Filter.Operand operand) {
+        if (operand instanceof Filter.Value value) {
+            return value.value();
+        }
+        throw new IllegalArgumentException("Expected a value but got " + operand);
+    }
+
+    static boolean equal(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return a.doubleValue() == b.doubleValue();
+        }
+        if (actual != null && expected != null && actual.getClass() != expected.getClass()) {
+            return actual.toString().equals(expected.toString());
+        }
+        return Objects.equals(actual, expected);
+    }
+
+    private static boolean range(Object actual, Object expected, IntPredicate test) {
+        // Missing values never satisfy a range comparison
+        return actual != null && expected != null && test.test(compare(actual, expected));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        if (actual instanceof Comparable comparable && actual.getClass() == expected.getClass()) {
+            return comparable.compareTo(expected);
+        }
+        return actual.toString().compareTo(expected.toString());
+    }
+
+    private static boolean contains(Object candidates, Object actual) {
+        if (candidates instanceof List<?> list) {
+            for (Object candidate : list) {
+                if (equal(actual, candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return equal(actual, candidates);
+    }
+}
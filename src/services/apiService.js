@@ -16,10 +16,80 @@ export const sendMessage = async (message, conversationId = null, fileInfo = nul
   }
 };
 
+// Streams the bot reply as Server-Sent Events. onToken is called for every chunk
+// of text as it arrives; the promise resolves with the final saved bot message, and
+// rejects if the stream ends without one (the reply failed and was not saved).
+// fetch is used instead of EventSource because we need POST and the auth header.
+export const streamMessage = async (message, conversationId = null, fileInfo = null, onToken = () => {}) => {
+  const token = localStorage.getItem('auth_token');
+  const response = await fetch('/api/chat/message/stream', {
+    method: 'POST',
+    headers: {
+      'Content-Type': 'application/json',
+      'Accept': 'text/event-stream',
+      ...(token ? { 'Authorization': `Bearer ${token}` } : {})
+    },
+    body: JSON.stringify({ message, conversationId, fileInfo })
+  });
+
+  if (!response.ok || !response.body) {
+    const error = new Error(`Streaming request failed with status ${response.status}`);
+    console.error('Error streaming message:', error);
+    throw error;
+  }
+
+  const reader = response.body.getReader();
+  const decoder = new TextDecoder();
+  let buffer = '';
+  let finalMessage = null;
+
+  const handleEvent = (rawEvent) => {
+    let eventName = 'message';
+    const dataLines = [];
+    rawEvent.split('\n').forEach(line => {
+      if (line.startsWith('event:')) {
+        eventName = line.slice(6).trim();
+      } else if (line.startsWith('data:')) {
+        dataLines.push(line.slice(5));
+      }
+    });
+    const data = dataLines.join('\n');
+    if (eventName === 'token') {
+      onToken(data);
+    } else if (eventName === 'done') {
+      finalMessage = JSON.parse(data);
+    }
+  };
+
+  while (true) {
+    const { done, value } = await reader.read();
+    if (done) break;
+    buffer += decoder.decode(value, { stream: true });
+
+    let separator;
+    while ((separator = buffer.indexOf('\n\n')) !== -1) {
+      handleEvent(buffer.slice(0, separator));
+      buffer = buffer.slice(separator + 2);
+    }
+  }
+  if (buffer.trim()) {
+    handleEvent(buffer);
+  }
+
+  if (!finalMessage) {
+    const error = new Error('Stream ended before the reply was completed');
+    console.error('Error streaming message:', error);
+    throw error;
+  }
+  return finalMessage;
+};
+
 // Conversation service functions
-export const getConversations = async () => {
+// Returns { conversations, page, hasMore } with lightweight summaries
+// (id, title, updatedAt, messageCount, lastMessagePreview).
+export const getConversations = async (page = 0, size = 50) => {
   try {
-    const response = await axios.get('/chat/conversations');
+    const response = await axios.get('/chat/conversations', { params: { page, size } });
     return response.data;
   } catch (error) {
     console.error('Error fetching conversations:', error);
@@ -37,6 +107,22 @@ export const getConversation = async (id) => {
   }
 };
 
+// Fetches a page of messages, oldest first. Omit `before` for the latest page and
+// pass the previous page's `nextBefore` to load older history.
+export const getMessages = async (id, before = null, limit = 50) => {
+  try {
+    const params = { limit };
+    if (before !== null && before !== undefined) {
+      params.before = before;
+    }
+    const response = await axios.get(`/chat/conversations/${id}/messages`, { params });
+    return response.data;
+  } catch (error) {
+    console.error(`Error fetching messages of conversation ${id}:`, error);
+    throw error;
+  }
+};
+
 export const createConversation = async (title = 'New Conversation') => {
   try {
     const response = await axios.post('/chat/conversations', { title });
@@ -86,3 +172,95 @@ export const uploadFile = async (file) => {
   }
 };
 
+
+// Resumable upload for large files: the file is sent in chunks (a few in parallel) and only
+// the missing ranges are sent again when resuming with an existing uploadId.
+// onProgress receives (bytesReceived, size). Resolves with the stored file info.
+export const uploadFileChunked = async (file, { uploadId = null, parallel = 3, onProgress = () => {} } = {}) => {
+  try {
+    const status = uploadId
+      ? (await axios.get(`/files/uploads/${uploadId}`)).data
+      : (await axios.post('/files/uploads', {
+          fileName: file.name,
+          contentType: file.type || null,
+          size: file.size
+        })).data;
+
+    const chunkSize = status.maxChunkSize;
+    const isReceived = (start, end) => (status.received || []).some(([from, to]) => from <= start && end <= to);
+    const pending = [];
+    for (let start = 0; start < file.size; start += chunkSize) {
+      const end = Math.min(start + chunkSize, file.size);
+      if (!isReceived(start, end)) {
+        pending.push([start, end]);
+      }
+    }
+
+    let bytesReceived = status.bytesReceived;
+    onProgress(bytesReceived, file.size);
+    const worker = async () => {
+      while (pending.length > 0) {
+        const [start, end] = pending.shift();
+        const response = await axios.put(`/files/uploads/${status.uploadId}`, file.slice(start, end), {
+          params: { offset: start },
+          headers: { 'Content-Type': 'application/octet-stream' }
+        });
+        bytesReceived = Math.max(bytesReceived, response.data.bytesReceived);
+        onProgress(bytesReceived, file.size);
+      }
+    };
+    await Promise.all(Array.from({ length: parallel }, worker));
+
+    const response = await axios.post(`/files/uploads/${status.uploadId}/complete`);
+    return response.data;
+  } catch (error) {
+    console.error('Error uploading file in chunks:', error);
+    throw error;
+  }
+};
+
+// Progress of an uploaded document being made searchable ({ state, totalChunks, embeddedChunks, error })
+export const getIngestionStatus = async (fileName) => {
+  try {
+    const response = await axios.get(`/files/${encodeURIComponent(fileName)}/ingestion`);
+    return response.data;
+  } catch (error) {
+    console.error(`Error fetching ingestion status of ${fileName}:`, error);
+    throw error;
+  }
+};
+
+// Deletes one of the user's uploaded files
+export const deleteFile = async (fileName) => {
+  try {
+    await axios.delete(`/files/${encodeURIComponent(fileName)}`);
+  } catch (error) {
+    console.error(`Error deleting file ${fileName}:`, error);
+    throw error;
+  }
+};
+
+// URL of a downscaled preview of an uploaded image; the server rounds width up to a cached size
+export const getImagePreviewUrl = (fileInfo, width) => `${fileInfo.url}?w=${width}`;
+
+// The user's uploaded files, newest first ({ files, page, hasMore })
+export const listFiles = async (page = 0, size = 50) => {
+  try {
+    const response = await axios.get('/files', { params: { page, size } });
+    return response.data;
+  } catch (error) {
+    console.error('Error listing files:', error);
+    throw error;
+  }
+};
+
+// Storage used by the user's files ({ files, bytes, quotaBytes }, quotaBytes 0 when unlimited)
+export const getStorageUsage = async () => {
+  try {
+    const response = await axios.get('/files/usage');
+    return response.data;
+  } catch (error) {
+    console.error('Error fetching storage usage:', error);
+    throw error;
+  }
+};